@@ -0,0 +1,76 @@
+package com.sendify.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.metrics.TrackingMetrics;
+import com.sendify.server.util.DbSchenkerCaptchaSolver;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Proof-of-work throughput of {@link DbSchenkerCaptchaSolver#solvePuzzle} per difficulty (t13:t14).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CaptchaSolverBenchmark {
+
+    private static final int PUZZLE_COUNT = 64;
+
+    /** t13:t14 difficulty bytes; expected attempts are ~1k, ~16k, ~66k and ~1M respectively. */
+    @Param({"33:64", "33:4", "32:255", "32:16"})
+    private String difficulty;
+
+    @Param({"0"})
+    private int parallelism;
+
+    private ForkJoinPool pool;
+    private DbSchenkerCaptchaSolver solver;
+    private byte[][] puzzles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int cores = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(cores);
+        solver = new DbSchenkerCaptchaSolver(new ObjectMapper(), pool, new TrackingMetrics(new SimpleMeterRegistry()));
+
+        int[] t = Puzzles.difficulty(difficulty);
+        puzzles = Puzzles.randomPuzzles(PUZZLE_COUNT, t[0], t[1], 42L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public String solvePuzzle() {
+        return solver.solvePuzzle(puzzles[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % PUZZLE_COUNT;
+        return index;
+    }
+}
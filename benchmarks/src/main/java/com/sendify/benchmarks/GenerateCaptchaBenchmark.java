@@ -0,0 +1,89 @@
+package com.sendify.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.metrics.TrackingMetrics;
+import com.sendify.server.util.DbSchenkerCaptchaSolver;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * End-to-end {@link DbSchenkerCaptchaSolver#generateCaptcha} for challenges carrying several JWTs,
+ * including header decoding and solution encoding. The JWTs of one challenge are solved concurrently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GenerateCaptchaBenchmark {
+
+    private static final int PUZZLE_COUNT = 64;
+
+    /** t13:t14 difficulty bytes; expected attempts per JWT are ~16k and ~66k respectively. */
+    @Param({"33:4", "32:255"})
+    private String difficulty;
+
+    @Param({"1", "2", "4"})
+    private int jwtsPerChallenge;
+
+    @Param({"0"})
+    private int parallelism;
+
+    private ForkJoinPool pool;
+    private DbSchenkerCaptchaSolver solver;
+    private byte[][] puzzles;
+    private String[] challenges;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int cores = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(cores);
+        solver = new DbSchenkerCaptchaSolver(new ObjectMapper(), pool, new TrackingMetrics(new SimpleMeterRegistry()));
+
+        int[] t = Puzzles.difficulty(difficulty);
+        puzzles = Puzzles.randomPuzzles(PUZZLE_COUNT, t[0], t[1], 42L);
+        challenges = new String[PUZZLE_COUNT];
+        for (int i = 0; i < PUZZLE_COUNT; i++) {
+            byte[][] jwtPuzzles = new byte[jwtsPerChallenge][];
+            for (int j = 0; j < jwtsPerChallenge; j++) {
+                jwtPuzzles[j] = puzzles[(i + j) % PUZZLE_COUNT];
+            }
+            challenges[i] = Puzzles.challenge(jwtPuzzles);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public String generateCaptcha() {
+        return solver.generateCaptcha(challenges[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % PUZZLE_COUNT;
+        return index;
+    }
+}
@@ -0,0 +1,81 @@
+package com.sendify.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.dto.external.LandSttResponse;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.mapper.LandSttResponseMapper;
+import com.sendify.server.mapper.LandSttStreamingDecoder;
+
+/**
+ * Deserialization of recorded {@code /land/{sttId}} payloads and their mapping to {@link ShipmentDetailsDto}.
+ * The small payload is a typical 2-package shipment, the large one has 40 packages with long event histories.
+ * {@code streamingDecodeAndMap} is the path used by the client: the body bytes go straight into a parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LandSttResponseBenchmark {
+
+    @Param({"land-small.json", "land-large.json"})
+    private String payload;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LandSttResponseMapper mapper = new LandSttResponseMapper();
+    private final LandSttStreamingDecoder decoder = new LandSttStreamingDecoder();
+
+    private String body;
+    private byte[] bytes;
+    private LandSttResponse parsed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/payloads/" + payload)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing payload " + payload);
+            }
+            bytes = in.readAllBytes();
+            body = new String(bytes);
+        }
+        parsed = objectMapper.readValue(body, LandSttResponse.class);
+    }
+
+    @Benchmark
+    public LandSttResponse readValue() throws IOException {
+        return objectMapper.readValue(body, LandSttResponse.class);
+    }
+
+    @Benchmark
+    public ShipmentDetailsDto map() {
+        return mapper.map(parsed);
+    }
+
+    @Benchmark
+    public ShipmentDetailsDto readValueAndMap() throws IOException {
+        return mapper.map(objectMapper.readValue(body, LandSttResponse.class));
+    }
+
+    @Benchmark
+    public ShipmentDetailsDto streamingDecodeAndMap() throws IOException {
+        return mapper.map(decoder.readLandStt(objectMapper.createParser(bytes)));
+    }
+}
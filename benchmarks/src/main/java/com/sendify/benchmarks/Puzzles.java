@@ -0,0 +1,55 @@
+package com.sendify.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Builds synthetic captcha challenges in the same shape DB Schenker sends them.
+ * A fixed seed keeps the puzzle set, and therefore the amount of work, identical between runs.
+ */
+final class Puzzles {
+
+    private static final String JWT_HEADER = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private Puzzles() {
+    }
+
+    /**
+     * Creates {@code count} random 32-byte puzzles with the given difficulty bytes.
+     * The expected number of attempts per puzzle is 2^256 / (t14 * 2^(8 * (t13 - 3))).
+     */
+    static byte[][] randomPuzzles(int count, int t13, int t14, long seed) {
+        Random random = new Random(seed);
+        byte[][] puzzles = new byte[count][32];
+        for (byte[] puzzle : puzzles) {
+            random.nextBytes(puzzle);
+            puzzle[13] = (byte) t13;
+            puzzle[14] = (byte) t14;
+        }
+        return puzzles;
+    }
+
+    /** Wraps puzzles into the base64 encoded, comma-separated JWT list of a captcha-puzzle header. */
+    static String challenge(byte[]... puzzles) {
+        StringBuilder jwts = new StringBuilder();
+        for (byte[] puzzle : puzzles) {
+            if (!jwts.isEmpty()) {
+                jwts.append(',');
+            }
+            String payload = "{\"puzzle\":\"" + Base64.getEncoder().encodeToString(puzzle) + "\"}";
+            jwts.append(JWT_HEADER)
+                    .append('.')
+                    .append(Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8)))
+                    .append(".signature");
+        }
+        return Base64.getEncoder().encodeToString(jwts.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Parses a "t13:t14" benchmark parameter. */
+    static int[] difficulty(String param) {
+        String[] parts = param.split(":");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+}
@@ -0,0 +1,143 @@
+package com.sendify.loadtest;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Issues and verifies captcha challenges in the format DB Schenker uses.
+ *
+ * A challenge is the base64 encoding of comma-separated HS256 JWTs whose payload carries a 32-byte
+ * {@code puzzle} with the difficulty in bytes 13 and 14, and an {@code exp} claim. A solution is the
+ * base64 encoding of {@code [{"jwt": ..., "solution": base64(8-byte little-endian nonce)}]}; it is valid
+ * when every JWT was signed by this server, has not expired, and
+ * {@code reverse(sha256(sha256(puzzle + nonce))) < t14 * 2^(8 * (t13 - 3))}.
+ */
+final class CaptchaChallenges {
+
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final String JWT_HEADER = URL_ENCODER.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private final ObjectMapper objectMapper;
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec key;
+    private final int t13;
+    private final int t14;
+    private final BigInteger target;
+    private final int jwtsPerChallenge;
+    private final Duration challengeTtl;
+
+    CaptchaChallenges(ObjectMapper objectMapper, int t13, int t14, int jwtsPerChallenge, Duration challengeTtl) {
+        this.objectMapper = objectMapper;
+        this.t13 = t13;
+        this.t14 = t14;
+        this.target = BigInteger.valueOf(t14).shiftLeft(8 * (t13 - 3));
+        this.jwtsPerChallenge = jwtsPerChallenge;
+        this.challengeTtl = challengeTtl;
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        this.key = new SecretKeySpec(secret, "HmacSHA256");
+    }
+
+    /**
+     * Value for the {@code captcha-puzzle} header of a 429 response.
+     */
+    String issue() {
+        long expiresAt = System.currentTimeMillis() / 1000 + challengeTtl.toSeconds();
+        StringBuilder jwts = new StringBuilder();
+        for (int i = 0; i < jwtsPerChallenge; i++) {
+            byte[] puzzle = new byte[32];
+            random.nextBytes(puzzle);
+            puzzle[13] = (byte) t13;
+            puzzle[14] = (byte) t14;
+
+            ObjectNode payload = objectMapper.createObjectNode()
+                    .put("puzzle", Base64.getEncoder().encodeToString(puzzle))
+                    .put("exp", expiresAt);
+            String signingInput = JWT_HEADER + "." + URL_ENCODER.encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8));
+            if (i > 0) {
+                jwts.append(',');
+            }
+            jwts.append(signingInput).append('.').append(URL_ENCODER.encodeToString(sign(signingInput)));
+        }
+        return Base64.getEncoder().encodeToString(jwts.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks a {@code captcha-solution} header. Any malformed input is simply invalid.
+     */
+    boolean verify(String solutionHeader) {
+        try {
+            JsonNode entries = objectMapper.readTree(Base64.getDecoder().decode(solutionHeader));
+            if (!entries.isArray() || entries.isEmpty()) {
+                return false;
+            }
+            for (JsonNode entry : entries) {
+                if (!verifyEntry(entry.path("jwt").asText(), entry.path("solution").asText())) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean verifyEntry(String jwt, String solution) throws Exception {
+        int signatureStart = jwt.lastIndexOf('.');
+        if (signatureStart < 0) {
+            return false;
+        }
+        String signingInput = jwt.substring(0, signatureStart);
+        byte[] signature = Base64.getUrlDecoder().decode(jwt.substring(signatureStart + 1));
+        if (!MessageDigest.isEqual(sign(signingInput), signature)) {
+            return false;
+        }
+        JsonNode payload = objectMapper.readTree(
+                Base64.getUrlDecoder().decode(signingInput.substring(signingInput.indexOf('.') + 1)));
+        if (payload.path("exp").asLong() < System.currentTimeMillis() / 1000) {
+            return false;
+        }
+        byte[] puzzle = Base64.getDecoder().decode(payload.path("puzzle").asText());
+        byte[] nonce = Base64.getDecoder().decode(solution);
+        if (nonce.length != 8) {
+            return false;
+        }
+
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update(puzzle);
+        sha256.update(nonce);
+        byte[] hash = sha256.digest(sha256.digest());
+        return new BigInteger(1, reverse(hash)).compareTo(target) < 0;
+    }
+
+    private byte[] sign(String signingInput) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(signingInput.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static byte[] reverse(byte[] bytes) {
+        byte[] reversed = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            reversed[i] = bytes[bytes.length - 1 - i];
+        }
+        return reversed;
+    }
+}
@@ -0,0 +1,59 @@
+package com.sendify.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latency samples and error counts of one load generator worker. Not thread-safe; workers are merged
+ * into a single recorder once the run is over.
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+    private final Map<String, Long> errors = new TreeMap<>();
+
+    void success(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    void error(String kind) {
+        errors.merge(kind, 1L, Long::sum);
+    }
+
+    void merge(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++) {
+            success(other.samples[i]);
+        }
+        other.errors.forEach((kind, n) -> errors.merge(kind, n, Long::sum));
+    }
+
+    /**
+     * Prints throughput and latency percentiles of the successful calls.
+     */
+    String report(String label, double seconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        long failed = errors.values().stream().mapToLong(Long::longValue).sum();
+        return String.format("%s: %d ok, %d failed %s in %.1f s -> %.1f req/s, p50=%s p90=%s p99=%s max=%s",
+                label, count, failed, errors, seconds, count / seconds,
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.90)),
+                millis(percentile(sorted, 0.99)), millis(count > 0 ? sorted[count - 1] : 0));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1fms", nanos / 1_000_000.0);
+    }
+}
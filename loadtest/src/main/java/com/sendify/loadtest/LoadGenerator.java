@@ -0,0 +1,149 @@
+package com.sendify.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Closed-loop load against a running server: every worker sends one request, waits for the answer and
+ * sends the next one. Calls that complete during warm-up are not counted.
+ *
+ * Options (all optional):
+ * <pre>
+ *   --target=http://localhost:8081   server under test
+ *   --mode=rest                      rest (GET /api/v1/shipments/{id}) or mcp (db_schenker_tracker over /mcp/sse)
+ *   --concurrency=32                 parallel workers; in mcp mode each worker owns an MCP session
+ *   --warmup=10s --duration=30s      warm-up and measured time
+ *   --references=0                   size of the reference pool; 0 makes every reference unique (no cache hits)
+ *   --timeout=60s                    per-call timeout
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private static final long FIRST_REFERENCE = 1_900_000_000L;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong uniqueReferences = new AtomicLong(FIRST_REFERENCE);
+
+    private final URI target;
+    private final String mode;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int referencePool;
+    private final Duration timeout;
+
+    LoadGenerator(Options options) {
+        this.target = URI.create(options.string("target", "http://localhost:8081"));
+        this.mode = options.string("mode", "rest");
+        this.concurrency = options.integer("concurrency", 32);
+        this.warmup = options.duration("warmup", Duration.ofSeconds(10));
+        this.duration = options.duration("duration", Duration.ofSeconds(30));
+        this.referencePool = options.integer("references", 0);
+        this.timeout = options.duration("timeout", Duration.ofSeconds(60));
+        if (!mode.equals("rest") && !mode.equals("mcp")) {
+            throw new IllegalArgumentException("--mode must be rest or mcp");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator(new Options(args));
+        System.out.println(generator.run());
+    }
+
+    String run() throws InterruptedException {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureUntil = measureFrom + duration.toNanos();
+
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            workers.add(Thread.ofVirtual().name("load-", i).start(() -> work(recorder, measureFrom, measureUntil)));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        LatencyRecorder total = new LatencyRecorder();
+        recorders.forEach(total::merge);
+        String label = String.format("%s x%d against %s", mode, concurrency, target);
+        return total.report(label, duration.toNanos() / 1_000_000_000.0);
+    }
+
+    private void work(LatencyRecorder recorder, long measureFrom, long measureUntil) {
+        McpSseClient mcp = null;
+        try {
+            if (mode.equals("mcp")) {
+                mcp = new McpSseClient(httpClient, objectMapper, timeout);
+                mcp.connect(target.resolve("/mcp/sse"));
+            }
+            while (System.nanoTime() < measureUntil) {
+                String reference = nextReference();
+                long start = System.nanoTime();
+                String error = mcp != null ? callMcp(mcp, reference) : callRest(reference);
+                long end = System.nanoTime();
+                if (start < measureFrom || end > measureUntil) {
+                    continue;
+                }
+                if (error == null) {
+                    recorder.success(end - start);
+                } else {
+                    recorder.error(error);
+                }
+            }
+        } catch (Exception e) {
+            recorder.error("session: " + e.getMessage());
+        } finally {
+            if (mcp != null) {
+                mcp.close();
+            }
+        }
+    }
+
+    /**
+     * Returns null on success or a short error kind.
+     */
+    private String callRest(String reference) {
+        HttpRequest request = HttpRequest.newBuilder(target.resolve("/api/v1/shipments/" + reference))
+                .timeout(timeout)
+                .GET()
+                .build();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200 ? null : "http " + response.statusCode();
+        } catch (Exception e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private String callMcp(McpSseClient mcp, String reference) {
+        try {
+            mcp.callTool("db_schenker_tracker", Map.of("referenceNumber", reference));
+            return null;
+        } catch (Exception e) {
+            return "mcp " + e.getClass().getSimpleName();
+        }
+    }
+
+    private String nextReference() {
+        long reference = referencePool > 0
+                ? FIRST_REFERENCE + ThreadLocalRandom.current().nextInt(referencePool)
+                : uniqueReferences.getAndIncrement();
+        return Long.toString(reference);
+    }
+}
@@ -0,0 +1,148 @@
+package com.sendify.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Minimal MCP client for the HTTP+SSE transport: one SSE stream per session for responses,
+ * JSON-RPC requests POSTed to the message endpoint announced in the {@code endpoint} event.
+ */
+final class McpSseClient implements AutoCloseable {
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private final CompletableFuture<URI> messageEndpoint = new CompletableFuture<>();
+
+    private volatile Stream<String> events;
+
+    McpSseClient(HttpClient httpClient, ObjectMapper objectMapper, Duration timeout) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Opens the SSE stream and performs the initialize handshake.
+     */
+    void connect(URI sseUri) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(sseUri).header("Accept", "text/event-stream").GET().build();
+        Thread.ofVirtual().name("mcp-sse").start(() -> readEvents(sseUri, request));
+        messageEndpoint.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        ObjectNode params = objectMapper.createObjectNode().put("protocolVersion", "2024-11-05");
+        params.putObject("capabilities");
+        params.putObject("clientInfo").put("name", "sendify-loadtest").put("version", "1.0.0");
+        request("initialize", params);
+        post(objectMapper.createObjectNode().put("jsonrpc", "2.0").put("method", "notifications/initialized"));
+    }
+
+    /**
+     * Calls a tool and returns the JSON-RPC result. Throws if the call failed or the tool reported an error.
+     */
+    JsonNode callTool(String name, Map<String, Object> arguments) throws Exception {
+        ObjectNode params = objectMapper.createObjectNode().put("name", name);
+        params.set("arguments", objectMapper.valueToTree(arguments));
+        JsonNode result = request("tools/call", params);
+        if (result.path("isError").asBoolean()) {
+            throw new IOException("Tool error: " + result.path("content").path(0).path("text").asText());
+        }
+        return result;
+    }
+
+    private JsonNode request(String method, ObjectNode params) throws Exception {
+        long id = nextId.incrementAndGet();
+        CompletableFuture<JsonNode> response = new CompletableFuture<>();
+        pending.put(id, response);
+        try {
+            ObjectNode message = objectMapper.createObjectNode().put("jsonrpc", "2.0").put("id", id).put("method", method);
+            message.set("params", params);
+            post(message);
+            JsonNode reply = response.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (reply.has("error")) {
+                throw new IOException("JSON-RPC error: " + reply.get("error"));
+            }
+            return reply.path("result");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException(method + " failed: " + e, e);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    private void post(JsonNode message) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(messageEndpoint.get())
+                .header("Content-Type", "application/json")
+                .timeout(timeout)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(message)))
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("MCP message endpoint answered " + response.statusCode());
+        }
+    }
+
+    private void readEvents(URI sseUri, HttpRequest request) {
+        try {
+            HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+            events = response.body();
+            String event = "message";
+            StringBuilder data = new StringBuilder();
+            for (String line : (Iterable<String>) events::iterator) {
+                if (line.isEmpty()) {
+                    dispatch(sseUri, event, data.toString());
+                    event = "message";
+                    data.setLength(0);
+                } else if (line.startsWith("event:")) {
+                    event = line.substring("event:".length()).trim();
+                } else if (line.startsWith("data:")) {
+                    data.append(line.substring("data:".length()).trim());
+                }
+            }
+        } catch (Exception e) {
+            messageEndpoint.completeExceptionally(e);
+        } finally {
+            IOException closed = new IOException("SSE stream closed");
+            messageEndpoint.completeExceptionally(closed);
+            pending.values().forEach(response -> response.completeExceptionally(closed));
+        }
+    }
+
+    private void dispatch(URI sseUri, String event, String data) throws IOException {
+        if ("endpoint".equals(event)) {
+            messageEndpoint.complete(sseUri.resolve(data));
+        } else if ("message".equals(event) && !data.isEmpty()) {
+            JsonNode message = objectMapper.readTree(data);
+            CompletableFuture<JsonNode> response = pending.get(message.path("id").asLong(-1));
+            if (response != null) {
+                response.complete(message);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        Stream<String> stream = events;
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.sendify.loadtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the DB Schenker public tracking API.
+ *
+ * Serves {@code GET <base>?query={reference}}, {@code GET <base>/land/{sttId}} and {@code GET <base>/land/{sttId}/trip}
+ * for any reference.
+ * Requests without a valid captcha token are let through up to {@code --free-rate} per second; above that
+ * the server answers 429 with a {@code captcha-puzzle} challenge. A correct {@code captcha-solution}
+ * becomes a token that is accepted for {@code --token-ttl}, like the session token of the real site.
+ *
+ * Options (all optional):
+ * <pre>
+ *   --port=9090              listen port
+ *   --latency=30ms           simulated upstream latency per request
+ *   --free-rate=20           requests per second served without a captcha token
+ *   --difficulty=32:255      t13:t14 of issued puzzles
+ *   --jwts=2                 puzzles per challenge
+ *   --token-ttl=60s          how long a solved captcha stays valid
+ *   --packages=3 --events=8  average packages and events per shipment
+ *   --trip-points=200        average trip points per shipment at start-up
+ *   --trip-step=30s          every trip gains one point per step
+ * </pre>
+ * Point the server at it with {@code --dbschenker.tracking.api-base=http://localhost:9090/nges-portal/api/public/tracking-public/shipments}.
+ */
+public final class MockUpstreamServer {
+
+    static final String BASE_PATH = "/nges-portal/api/public/tracking-public/shipments";
+
+    private static final Duration CHALLENGE_TTL = Duration.ofMinutes(5);
+
+    private final ShipmentPayloads payloads;
+    private final CaptchaChallenges challenges;
+    private final Duration latency;
+    private final Duration tokenTtl;
+    private final double freeRate;
+    private final Duration tripStep;
+    private final long startedAtNanos = System.nanoTime();
+
+    /**
+     * Accepted captcha solutions and their expiry in System.nanoTime() units. Expired entries are kept
+     * until their JWTs have expired too, so an expired token cannot be verified and redeemed again.
+     */
+    private final Map<String, Long> tokens = new ConcurrentHashMap<>();
+
+    private double freeTokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder challenged = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    MockUpstreamServer(Options options) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String[] difficulty = options.string("difficulty", "32:255").split(":");
+        this.payloads = new ShipmentPayloads(objectMapper, options.integer("packages", 3), options.integer("events", 8),
+                options.integer("trip-points", 200));
+        this.tripStep = options.duration("trip-step", Duration.ofSeconds(30));
+        this.challenges = new CaptchaChallenges(objectMapper, Integer.parseInt(difficulty[0]), Integer.parseInt(difficulty[1]),
+                options.integer("jwts", 2), CHALLENGE_TTL);
+        this.latency = options.duration("latency", Duration.ofMillis(30));
+        this.tokenTtl = options.duration("token-ttl", Duration.ofSeconds(60));
+        this.freeRate = options.decimal("free-rate", 20);
+        this.freeTokens = freeRate;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+        MockUpstreamServer mock = new MockUpstreamServer(options);
+        int port = options.integer("port", 9090);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext(BASE_PATH, mock::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        System.out.printf("Mock upstream listening on http://localhost:%d%s%n", port, BASE_PATH);
+
+        var reporter = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon(true).factory());
+        reporter.scheduleAtFixedRate(mock::report, 10, 10, TimeUnit.SECONDS);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            sleep(latency);
+            if (!admit(exchange)) {
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            byte[] body;
+            if (path.equals(BASE_PATH) && query != null && query.startsWith("query=")) {
+                body = payloads.search(URLDecoder.decode(query.substring("query=".length()), StandardCharsets.UTF_8));
+            } else if (path.startsWith(BASE_PATH + "/land/") && path.endsWith("/trip")) {
+                String sttId = path.substring((BASE_PATH + "/land/").length(), path.length() - "/trip".length());
+                body = payloads.trip(sttId, (System.nanoTime() - startedAtNanos) / tripStep.toNanos());
+            } else if (path.startsWith(BASE_PATH + "/land/")) {
+                body = payloads.land(path.substring((BASE_PATH + "/land/").length()));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            served.increment();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Lets the request through if it carries a valid token or fits into the free rate,
+     * otherwise answers 429 with a fresh challenge.
+     */
+    private boolean admit(HttpExchange exchange) throws IOException {
+        String solution = exchange.getRequestHeaders().getFirst("captcha-solution");
+        long now = System.nanoTime();
+        if (solution != null) {
+            Long expiresAt = tokens.get(solution);
+            if (expiresAt != null && expiresAt - now > 0) {
+                return true;
+            }
+            if (expiresAt == null && challenges.verify(solution)) {
+                solved.increment();
+                tokens.put(solution, now + tokenTtl.toNanos());
+                return true;
+            }
+            rejected.increment();
+        }
+        if (tryTakeFreeSlot(now)) {
+            return true;
+        }
+        challenged.increment();
+        exchange.getResponseHeaders().set("captcha-puzzle", challenges.issue());
+        exchange.sendResponseHeaders(429, -1);
+        return false;
+    }
+
+    private synchronized boolean tryTakeFreeSlot(long now) {
+        freeTokens = Math.min(freeRate, freeTokens + (now - lastRefillNanos) / 1_000_000_000.0 * freeRate);
+        lastRefillNanos = now;
+        if (freeTokens >= 1) {
+            freeTokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+        tokens.values().removeIf(expiresAt -> now - expiresAt > CHALLENGE_TTL.toNanos());
+        long active = tokens.values().stream().filter(expiresAt -> expiresAt - now > 0).count();
+        System.out.printf("served=%d challenged=%d solved=%d rejected=%d activeTokens=%d%n",
+                served.sum(), challenged.sum(), solved.sum(), rejected.sum(), active);
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.sendify.loadtest;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.dto.external.LandSttResponse;
+import com.sendify.server.dto.external.ShipmentResponse;
+import com.sendify.server.dto.external.TripResponse;
+
+/**
+ * Synthetic upstream payloads built from the server's own external DTOs, so they always match the schema
+ * the client decodes. Every reference maps to a deterministic shipment (same reference, same payload),
+ * with the number of packages and events drawn around the configured averages.
+ */
+final class ShipmentPayloads {
+
+    private static final String[] EVENT_CODES = {"COL", "ENT", "MOV", "DEP", "ARR", "OFD", "DLV"};
+    private static final String[][] PLACES = {
+            {"Sweden", "SE", "Malmö", "21119"},
+            {"Germany", "DE", "Frankfurt am Main", "60327"},
+            {"Poland", "PL", "Poznań", "61-001"},
+            {"Netherlands", "NL", "Rotterdam", "3011"},
+            {"France", "FR", "Lyon", "69001"}
+    };
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2025, 1, 1, 8, 0, 0, 0, ZoneOffset.ofHours(1));
+
+    private final ObjectMapper objectMapper;
+    private final int averagePackages;
+    private final int averageEvents;
+    private final int averageTripPoints;
+
+    ShipmentPayloads(ObjectMapper objectMapper, int averagePackages, int averageEvents, int averageTripPoints) {
+        this.objectMapper = objectMapper;
+        this.averagePackages = averagePackages;
+        this.averageEvents = averageEvents;
+        this.averageTripPoints = averageTripPoints;
+    }
+
+    static String sttId(String reference) {
+        return "LandStt:SEMMA" + reference;
+    }
+
+    /**
+     * Body of {@code GET ?query={reference}}. A third of the references match one shipment, the others two or three,
+     * like a consignment split over several STTs; the first match is always {@link #sttId}.
+     */
+    byte[] search(String reference) throws JsonProcessingException {
+        int matches = 1 + Math.floorMod(reference.hashCode(), 3);
+        List<ShipmentResponse.ShipmentResult> results = new ArrayList<>(matches);
+        for (int i = 0; i < matches; i++) {
+            String stt = "SEMMA" + reference + (i == 0 ? "" : "-" + i);
+            Random random = new Random(stt.hashCode());
+            String[] from = PLACES[random.nextInt(PLACES.length)];
+            String[] to = PLACES[random.nextInt(PLACES.length)];
+            ShipmentResponse.ShipmentResult result = new ShipmentResponse.ShipmentResult();
+            result.setId("LandStt:" + stt);
+            result.setStt(stt);
+            result.setTransportMode("LAND");
+            result.setPercentageProgress(random.nextInt(101));
+            result.setLastEventCode(EVENT_CODES[random.nextInt(EVENT_CODES.length)]);
+            result.setFromLocation(from[2] + ", " + from[1]);
+            result.setToLocation(to[2] + ", " + to[1]);
+            result.setStartDate(EPOCH.plusHours(random.nextInt(24 * 300)).toString());
+            result.setConsignment(reference);
+            results.add(result);
+        }
+        return objectMapper.writeValueAsBytes(ShipmentResponse.builder()
+                .results(results)
+                .warnings(List.of())
+                .build());
+    }
+
+    /**
+     * Body of {@code GET /land/{sttId}}.
+     */
+    byte[] land(String sttId) throws JsonProcessingException {
+        Random random = new Random(sttId.hashCode());
+        String[] from = PLACES[random.nextInt(PLACES.length)];
+        String[] to = PLACES[random.nextInt(PLACES.length)];
+
+        LandSttResponse.References references = new LandSttResponse.References();
+        references.setShipper(List.of("LOADTEST SHIPPER " + random.nextInt(1000)));
+        references.setConsignee(List.of("LOADTEST CONSIGNEE " + random.nextInt(1000)));
+        references.setWaybillAndConsignementNumbers(List.of(sttId));
+
+        int packages = Math.max(1, averagePackages / 2 + random.nextInt(averagePackages + 1));
+        LandSttResponse.Goods goods = new LandSttResponse.Goods();
+        goods.setPieces(packages);
+        goods.setWeight(measurement(10 + random.nextInt(2000) / 4.0, "KGM"));
+        goods.setVolume(measurement(random.nextInt(40) / 10.0, "MTQ"));
+        goods.setLoadingMeters(measurement(random.nextInt(20) / 10.0, "MTR"));
+
+        LandSttResponse.NetworkLocation location = new LandSttResponse.NetworkLocation();
+        location.setCollectFrom(address(from));
+        location.setShipperPlace(address(from));
+        location.setDeliverTo(address(to));
+        location.setConsigneePlace(address(to));
+
+        int eventCount = Math.max(1, averageEvents / 2 + random.nextInt(averageEvents + 1));
+        List<LandSttResponse.TrackingEvent> events = new ArrayList<>();
+        OffsetDateTime time = EPOCH.plusHours(random.nextInt(24 * 300));
+        for (int i = 0; i < eventCount; i++) {
+            time = time.plusMinutes(30 + random.nextInt(600));
+            String[] place = i < eventCount / 2 ? from : to;
+            LandSttResponse.TrackingEvent event = new LandSttResponse.TrackingEvent();
+            event.setCode(eventCode(i, eventCount));
+            event.setDate(time.toString());
+            event.setComment("Load test event " + i);
+            LandSttResponse.EventLocation eventLocation = new LandSttResponse.EventLocation();
+            eventLocation.setName(place[2]);
+            eventLocation.setCode(place[1] + place[3]);
+            eventLocation.setCountryCode(place[1]);
+            event.setLocation(eventLocation);
+            LandSttResponse.Reason reason = new LandSttResponse.Reason();
+            reason.setCode("R00");
+            reason.setDescription("Regular");
+            event.setReasons(List.of(reason));
+            events.add(event);
+        }
+
+        List<LandSttResponse.PackageItem> packageItems = new ArrayList<>();
+        for (int p = 0; p < packages; p++) {
+            LandSttResponse.PackageItem item = new LandSttResponse.PackageItem();
+            item.setId(sttId + "-" + (p + 1));
+            item.setEvents(events.stream().map(event -> {
+                LandSttResponse.PackageEvent packageEvent = new LandSttResponse.PackageEvent();
+                packageEvent.setCode(event.getCode());
+                packageEvent.setDate(event.getDate());
+                packageEvent.setLocation(event.getLocation().getName());
+                packageEvent.setCountryCode(event.getLocation().getCountryCode());
+                packageEvent.setComment(event.getComment());
+                return packageEvent;
+            }).toList());
+            packageItems.add(item);
+        }
+
+        LandSttResponse.ProgressBar progressBar = new LandSttResponse.ProgressBar();
+        progressBar.setActiveStep(events.getLast().getCode());
+
+        return objectMapper.writeValueAsBytes(LandSttResponse.builder()
+                .sttNumber(sttId)
+                .product("DB SCHENKERsystem")
+                .references(references)
+                .goods(goods)
+                .location(location)
+                .events(events)
+                .packages(packageItems)
+                .progressBar(List.of(progressBar))
+                .build());
+    }
+
+    /**
+     * Body of {@code GET /land/{sttId}/trip}: a route from the shipper to the consignee place that gains
+     * one point per elapsed step, starting from {@code averageTripPoints} on average.
+     */
+    byte[] trip(String sttId, long elapsedSteps) throws JsonProcessingException {
+        Random random = new Random(sttId.hashCode());
+        int points = Math.max(1, averageTripPoints / 2 + random.nextInt(averageTripPoints + 1)) + (int) elapsedSteps;
+        double latitude = 48 + random.nextDouble() * 8;
+        double longitude = 5 + random.nextDouble() * 15;
+        OffsetDateTime time = EPOCH.plusHours(random.nextInt(24 * 300));
+        List<TripResponse.TripPoint> trip = new ArrayList<>(points);
+        for (int i = 0; i < points; i++) {
+            latitude += (random.nextDouble() - 0.4) * 0.05;
+            longitude += (random.nextDouble() - 0.4) * 0.05;
+            time = time.plusMinutes(5);
+            TripResponse.TripPoint point = new TripResponse.TripPoint();
+            point.setLatitude(Math.round(latitude * 1e5) / 1e5);
+            point.setLongitude(Math.round(longitude * 1e5) / 1e5);
+            // Moves through the codes up to OFD; the route keeps growing, so it never reaches DLV
+            point.setLastEventCode(EVENT_CODES[Math.min(i * EVENT_CODES.length / Math.max(averageTripPoints, 1), EVENT_CODES.length - 2)]);
+            point.setLastEventDate(time.toString());
+            trip.add(point);
+        }
+        return objectMapper.writeValueAsBytes(TripResponse.builder()
+                .start(trip.getFirst().getLastEventDate())
+                .end(trip.getLast().getLastEventDate())
+                .tripPoints(trip)
+                .build());
+    }
+
+    /**
+     * Walks through the code list so that roughly half of the shipments end delivered.
+     */
+    private static String eventCode(int index, int count) {
+        if (index == count - 1 && count % 2 == 0) {
+            return "DLV";
+        }
+        return EVENT_CODES[Math.min(index, EVENT_CODES.length - 2)];
+    }
+
+    private static LandSttResponse.Measurement measurement(double value, String unit) {
+        LandSttResponse.Measurement measurement = new LandSttResponse.Measurement();
+        measurement.setValue(value);
+        measurement.setUnit(unit);
+        return measurement;
+    }
+
+    private static LandSttResponse.Address address(String[] place) {
+        LandSttResponse.Address address = new LandSttResponse.Address();
+        address.setCountry(place[0]);
+        address.setCountryCode(place[1]);
+        address.setCity(place[2]);
+        address.setPostCode(place[3]);
+        return address;
+    }
+}
@@ -0,0 +1,115 @@
+package com.sendify.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Measures how long an MCP host waits for the STDIO server: the time from process start until the
+ * {@code initialize} response, and until the response of the first tool request.
+ *
+ * Options:
+ * <pre>
+ *   --runs=5                   number of cold starts, the median is reported
+ *   --reference=1806203236     if set, the first request is a db_schenker_tracker call, otherwise tools/list
+ * </pre>
+ * Everything after {@code --} is the server command, e.g.
+ * {@code -- java -Dspring.profiles.active=stdio -jar server/target/server-0.0.1-SNAPSHOT.jar}.
+ */
+public final class StdioStartupProbe {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        int separator = Arrays.asList(args).indexOf("--");
+        if (separator < 0 || separator == args.length - 1) {
+            throw new IllegalArgumentException("Usage: StdioStartupProbe [--runs=N] [--reference=REF] -- <server command>");
+        }
+        Options options = new Options(Arrays.copyOfRange(args, 0, separator));
+        List<String> command = List.of(Arrays.copyOfRange(args, separator + 1, args.length));
+
+        StdioStartupProbe probe = new StdioStartupProbe();
+        int runs = options.integer("runs", 5);
+        String reference = options.string("reference", null);
+        long[] initialized = new long[runs];
+        long[] firstResponse = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long[] timings = probe.measure(command, reference);
+            initialized[i] = timings[0];
+            firstResponse[i] = timings[1];
+            System.out.printf("run %d: initialize %d ms, first %s %d ms%n",
+                    i + 1, timings[0], reference != null ? "tool call" : "tools/list", timings[1]);
+        }
+        System.out.printf("median: initialize %d ms, first response %d ms%n", median(initialized), median(firstResponse));
+    }
+
+    /**
+     * Starts the server once and returns the milliseconds until the initialize and the first request responses.
+     */
+    long[] measure(List<String> command, String reference) throws Exception {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try (OutputStream in = process.getOutputStream();
+             BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            ObjectNode params = objectMapper.createObjectNode().put("protocolVersion", "2024-11-05");
+            params.putObject("capabilities");
+            params.putObject("clientInfo").put("name", "sendify-startup-probe").put("version", "1.0.0");
+            send(in, request(1, "initialize", params));
+            awaitResponse(out, 1);
+            long initialized = System.nanoTime();
+
+            send(in, objectMapper.createObjectNode().put("jsonrpc", "2.0").put("method", "notifications/initialized"));
+            if (reference != null) {
+                ObjectNode call = objectMapper.createObjectNode().put("name", "db_schenker_tracker");
+                call.putObject("arguments").put("referenceNumber", reference);
+                send(in, request(2, "tools/call", call));
+            } else {
+                send(in, request(2, "tools/list", objectMapper.createObjectNode()));
+            }
+            awaitResponse(out, 2);
+            long responded = System.nanoTime();
+            return new long[]{(initialized - start) / 1_000_000, (responded - start) / 1_000_000};
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private ObjectNode request(long id, String method, ObjectNode params) {
+        ObjectNode request = objectMapper.createObjectNode().put("jsonrpc", "2.0").put("id", id).put("method", method);
+        request.set("params", params);
+        return request;
+    }
+
+    private void send(OutputStream in, JsonNode message) throws IOException {
+        in.write(objectMapper.writeValueAsBytes(message));
+        in.write('\n');
+        in.flush();
+    }
+
+    private void awaitResponse(BufferedReader out, long id) throws IOException {
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.startsWith("{") && objectMapper.readTree(line).path("id").asLong(-1) == id) {
+                return;
+            }
+        }
+        throw new IOException("Server exited before answering request " + id);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -1,8 +1,11 @@
 package com.sendify.server;
 
+import java.util.Arrays;
+
 import com.sendify.server.mcp.ShipmentTool;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -15,10 +18,18 @@ public class ServerApplication {
 	}
 
     @Bean
-    public ToolCallbackProvider shipmentTools(ShipmentTool shipmentTool) {
-        return MethodToolCallbackProvider.builder()
+    public ToolCallbackProvider shipmentTools(ShipmentTool shipmentTool,
+                                              @Value("${spring.ai.mcp.server.type:SYNC}") String serverType) {
+        ToolCallbackProvider tools = MethodToolCallbackProvider.builder()
                 .toolObjects(shipmentTool)
                 .build();
+        if (!"ASYNC".equalsIgnoreCase(serverType)) {
+            return tools;
+        }
+        // The async server gets the non-blocking db_schenker_tracker from AsyncShipmentTool instead
+        return ToolCallbackProvider.from(Arrays.stream(tools.getToolCallbacks())
+                .filter(tool -> !ShipmentTool.TRACKER_NAME.equals(tool.getToolDefinition().name()))
+                .toList());
     }
 
 }
@@ -0,0 +1,233 @@
+package com.sendify.server.cache;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+
+/**
+ * Cached form of a {@link ShipmentDetailsDto}.
+ *
+ * Every distinct tracking event of the shipment and its packages is stored once, in columns; the shipment
+ * history and each package hold indexes into them, so package events repeating the history cost one
+ * {@code int}. Codes, locations and comments come from the shared {@link Vocabulary}. Dates are parsed once
+ * into epoch seconds and an offset; a date that would not format back to the exact upstream text is kept as text.
+ * {@link #toDetails()} rebuilds the DTO with one event instance per distinct event.
+ * Sender, receiver and package details are mutable DTOs, so they are copied when stored and when rebuilt:
+ * neither the DTO passed in nor any DTO handed out shares them with the cache.
+ */
+final class CompactShipment {
+
+    /** Encoded offset of an event whose date is kept as text in {@code rawDates}. */
+    private static final int RAW_DATE = Integer.MIN_VALUE;
+
+    private final ShipmentDetailsDto.Party sender;
+    private final ShipmentDetailsDto.Party receiver;
+    private final ShipmentDetailsDto.PackageDetails packageDetails;
+    private final String fetchedAt;
+    private final Boolean stale;
+
+    private final String[] codes;
+    private final String[] locations;
+    private final String[] comments;
+    private final long[] epochSeconds;
+    /** Offset seconds times two, plus one if the date was written without seconds, or {@link #RAW_DATE}. */
+    private final int[] offsets;
+    /** Null unless some date is kept as text. */
+    private final String[] rawDates;
+
+    /** Indexes into the event columns; null when the DTO had no list. */
+    private final int[] history;
+    private final String[] packageIds;
+    private final int[][] packageEvents;
+
+    private CompactShipment(ShipmentDetailsDto details, Vocabulary vocabulary) {
+        sender = copy(details.getSender());
+        receiver = copy(details.getReceiver());
+        packageDetails = copy(details.getPackageDetails());
+        fetchedAt = details.getFetchedAt();
+        stale = details.getStale();
+
+        Map<ShipmentDetailsDto.TrackingEvent, Integer> distinct = new HashMap<>();
+        history = indexes(details.getTrackingHistory(), distinct);
+        List<ShipmentDetailsDto.PackageTracking> packages = details.getPackageTracking();
+        if (packages != null) {
+            packageIds = new String[packages.size()];
+            packageEvents = new int[packages.size()][];
+            for (int i = 0; i < packages.size(); i++) {
+                packageIds[i] = packages.get(i).getPackageId();
+                packageEvents[i] = indexes(packages.get(i).getEvents(), distinct);
+            }
+        } else {
+            packageIds = null;
+            packageEvents = null;
+        }
+
+        int size = distinct.size();
+        codes = new String[size];
+        locations = new String[size];
+        comments = new String[size];
+        epochSeconds = new long[size];
+        offsets = new int[size];
+        String[] raw = null;
+        for (Map.Entry<ShipmentDetailsDto.TrackingEvent, Integer> entry : distinct.entrySet()) {
+            ShipmentDetailsDto.TrackingEvent event = entry.getKey();
+            int i = entry.getValue();
+            codes[i] = vocabulary.intern(event.getCode());
+            locations[i] = vocabulary.intern(event.getLocation());
+            comments[i] = vocabulary.intern(event.getComment());
+            offsets[i] = encodeDate(event.getDate(), epochSeconds, i);
+            if (offsets[i] == RAW_DATE) {
+                if (raw == null) {
+                    raw = new String[size];
+                }
+                raw[i] = event.getDate();
+            }
+        }
+        rawDates = raw;
+    }
+
+    static CompactShipment of(ShipmentDetailsDto details, Vocabulary vocabulary) {
+        return new CompactShipment(details, vocabulary);
+    }
+
+    ShipmentDetailsDto toDetails() {
+        ShipmentDetailsDto.TrackingEvent[] events = new ShipmentDetailsDto.TrackingEvent[codes.length];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = ShipmentDetailsDto.TrackingEvent.builder()
+                    .code(codes[i])
+                    .date(offsets[i] == RAW_DATE ? rawDates[i] : decodeDate(epochSeconds[i], offsets[i]))
+                    .location(locations[i])
+                    .comment(comments[i])
+                    .build();
+        }
+        List<ShipmentDetailsDto.PackageTracking> packages = null;
+        if (packageIds != null) {
+            packages = new ArrayList<>(packageIds.length);
+            for (int i = 0; i < packageIds.length; i++) {
+                packages.add(ShipmentDetailsDto.PackageTracking.builder()
+                        .packageId(packageIds[i])
+                        .events(events(events, packageEvents[i]))
+                        .build());
+            }
+        }
+        return ShipmentDetailsDto.builder()
+                .sender(copy(sender))
+                .receiver(copy(receiver))
+                .packageDetails(copy(packageDetails))
+                .trackingHistory(events(events, history))
+                .packageTracking(packages)
+                .fetchedAt(fetchedAt)
+                .stale(stale)
+                .build();
+    }
+
+    private static int[] indexes(List<ShipmentDetailsDto.TrackingEvent> events, Map<ShipmentDetailsDto.TrackingEvent, Integer> distinct) {
+        if (events == null) {
+            return null;
+        }
+        int[] indexes = new int[events.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = distinct.computeIfAbsent(events.get(i), event -> distinct.size());
+        }
+        return indexes;
+    }
+
+    private static List<ShipmentDetailsDto.TrackingEvent> events(ShipmentDetailsDto.TrackingEvent[] events, int[] indexes) {
+        if (indexes == null) {
+            return null;
+        }
+        List<ShipmentDetailsDto.TrackingEvent> list = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            list.add(events[index]);
+        }
+        return list;
+    }
+
+    private static ShipmentDetailsDto.Party copy(ShipmentDetailsDto.Party party) {
+        if (party == null) {
+            return null;
+        }
+        ShipmentDetailsDto.Address address = party.getAddress();
+        return ShipmentDetailsDto.Party.builder()
+                .name(party.getName())
+                .address(address == null ? null : ShipmentDetailsDto.Address.builder()
+                        .countryCode(address.getCountryCode())
+                        .country(address.getCountry())
+                        .city(address.getCity())
+                        .postCode(address.getPostCode())
+                        .build())
+                .build();
+    }
+
+    private static ShipmentDetailsDto.PackageDetails copy(ShipmentDetailsDto.PackageDetails details) {
+        if (details == null) {
+            return null;
+        }
+        List<ShipmentDetailsDto.Dimension> dimensions = null;
+        if (details.getDimensions() != null) {
+            dimensions = new ArrayList<>(details.getDimensions().size());
+            for (ShipmentDetailsDto.Dimension dimension : details.getDimensions()) {
+                dimensions.add(dimension == null ? null : ShipmentDetailsDto.Dimension.builder()
+                        .length(dimension.getLength())
+                        .width(dimension.getWidth())
+                        .height(dimension.getHeight())
+                        .unit(dimension.getUnit())
+                        .build());
+            }
+        }
+        return ShipmentDetailsDto.PackageDetails.builder()
+                .pieceCount(details.getPieceCount())
+                .weight(details.getWeight())
+                .weightUnit(details.getWeightUnit())
+                .dimensions(dimensions)
+                .build();
+    }
+
+    /**
+     * Stores the epoch seconds of {@code date} at {@code index} and returns its encoded offset, or
+     * {@link #RAW_DATE} if the date cannot be written back exactly from those.
+     */
+    private static int encodeDate(String date, long[] epochSeconds, int index) {
+        if (date == null) {
+            return RAW_DATE;
+        }
+        OffsetDateTime parsed;
+        try {
+            parsed = OffsetDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            return RAW_DATE;
+        }
+        long seconds = parsed.toEpochSecond();
+        int offset = parsed.getOffset().getTotalSeconds();
+        for (int shortForm = 0; shortForm <= 1; shortForm++) {
+            int encoded = offset * 2 + shortForm;
+            if (date.equals(decodeDate(seconds, encoded))) {
+                epochSeconds[index] = seconds;
+                return encoded;
+            }
+        }
+        return RAW_DATE;
+    }
+
+    /**
+     * Both forms come from the upstream: {@code 2025-11-03T08:15:00+01:00}, and without seconds
+     * {@code 2025-11-03T08:15+01:00}.
+     */
+    private static String decodeDate(long epochSeconds, int encoded) {
+        try {
+            OffsetDateTime date = OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds), ZoneOffset.ofTotalSeconds(encoded >> 1));
+            return (encoded & 1) == 0 ? DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(date) : date.toString();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.sendify.server.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process cache of tracked shipments keyed by reference number.
+ * Size-bounded with LRU eviction; the TTL depends on the shipment state:
+ * delivered shipments no longer change and are kept much longer than shipments still in transit.
+ * Expired entries are kept for another {@code stale-ttl} as a fallback while the upstream is refreshed or down.
+ * Shipments are held as {@link CompactShipment}s and rebuilt into a DTO on every read.
+ */
+@Component
+@Slf4j
+public class ShipmentCache {
+
+    @Value("${dbschenker.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${dbschenker.cache.delivered-ttl:24h}")
+    private Duration deliveredTtl;
+
+    @Value("${dbschenker.cache.in-transit-ttl:2m}")
+    private Duration inTransitTtl;
+
+    @Value("${dbschenker.cache.stale-ttl:7d}")
+    private Duration staleTtl;
+
+    @Value("${dbschenker.cache.delivered-codes:DLV}")
+    private Set<String> deliveredCodes;
+
+    @Value("${dbschenker.cache.vocabulary-max-size:100000}")
+    private int vocabularyMaxSize;
+
+    private Vocabulary vocabulary;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+
+    /** Access-ordered, so the eldest entry is the least recently used one. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    @PostConstruct
+    void init() {
+        vocabulary = new Vocabulary(vocabularyMaxSize);
+    }
+
+    /**
+     * Returns the cached shipment, or null if it is missing or expired.
+     */
+    public ShipmentDetailsDto get(String referenceNumber) {
+        CompactShipment compact;
+        lock.lock();
+        try {
+            Entry entry = entries.get(referenceNumber);
+            long now = System.nanoTime();
+            if (entry != null && entry.expiresAtNanos - now <= 0) {
+                if (!entry.expirationCounted) {
+                    expirations.increment();
+                }
+                if (entry.staleUntilNanos - now <= 0) {
+                    entries.remove(referenceNumber);
+                } else if (!entry.expirationCounted) {
+                    entries.put(referenceNumber, entry.withExpirationCounted());
+                }
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            compact = entry.value;
+        } finally {
+            lock.unlock();
+        }
+        return compact.toDetails();
+    }
+
+    /**
+     * Returns the last known shipment even if it has expired, as long as it is within the stale TTL.
+     * Meant as a fallback after {@link #get} missed, so it does not count as a hit or a miss.
+     */
+    public ShipmentDetailsDto getStale(String referenceNumber) {
+        CompactShipment compact;
+        lock.lock();
+        try {
+            Entry entry = entries.get(referenceNumber);
+            if (entry == null || entry.staleUntilNanos - System.nanoTime() <= 0) {
+                return null;
+            }
+            staleHits.increment();
+            compact = entry.value;
+        } finally {
+            lock.unlock();
+        }
+        return compact.toDetails();
+    }
+
+    public void put(String referenceNumber, ShipmentDetailsDto details) {
+        Duration ttl = isDelivered(details) ? deliveredTtl : inTransitTtl;
+        long expiresAt = System.nanoTime() + ttl.toNanos();
+        Entry entry = new Entry(CompactShipment.of(details, vocabulary), expiresAt, expiresAt + staleTtl.toNanos(), false);
+        lock.lock();
+        try {
+            entries.put(referenceNumber, entry);
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Cached shipment {} for {}", referenceNumber, ttl);
+    }
+
+    public void invalidate(String referenceNumber) {
+        lock.lock();
+        try {
+            entries.remove(referenceNumber);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(hits.sum(), misses.sum(), staleHits.sum(), evictions.sum(), expirations.sum(), entries.size(), vocabulary.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A shipment is considered delivered once any tracking event carries a delivered code.
+     */
+    public boolean isDelivered(ShipmentDetailsDto details) {
+        if (details.getTrackingHistory() == null) {
+            return false;
+        }
+        return details.getTrackingHistory().stream()
+                .anyMatch(event -> event.getCode() != null && deliveredCodes.contains(event.getCode()));
+    }
+
+    /**
+     * {@code expirationCounted} is set by the first read past the TTL, so an entry that stays around
+     * for stale reads counts as one expiration however often it is read.
+     */
+    private record Entry(CompactShipment value, long expiresAtNanos, long staleUntilNanos, boolean expirationCounted) {
+
+        Entry withExpirationCounted() {
+            return new Entry(value, expiresAtNanos, staleUntilNanos, true);
+        }
+    }
+
+    /**
+     * Cache counters. Stale hits are expired entries served as a fallback, evictions are removals due to
+     * the size bound, expirations are entries found past their TTL, counted once per entry. The vocabulary size
+     * is the number of distinct event codes, locations and comments shared by the cached shipments.
+     */
+    public record Stats(long hits, long misses, long staleHits, long evictions, long expirations, int size, int vocabularySize) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.sendify.server.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Exposes the shipment cache counters under /actuator/shipmentcache.
+ */
+@Component
+@Endpoint(id = "shipmentcache")
+@RequiredArgsConstructor
+public class ShipmentCacheEndpoint {
+
+    private final ShipmentCache shipmentCache;
+
+    @ReadOperation
+    public ShipmentCache.Stats stats() {
+        return shipmentCache.stats();
+    }
+}
@@ -0,0 +1,72 @@
+package com.sendify.server.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process cache of shipment trips keyed by reference number, size-bounded with LRU eviction.
+ * Expired trips are kept as the known prefix for the next refresh, see {@link TripTrack#extend()}.
+ */
+@Component
+public class TripCache {
+
+    @Value("${dbschenker.trip.max-size:1000}")
+    private int maxSize;
+
+    @Value("${dbschenker.trip.ttl:1m}")
+    private Duration ttl;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Access-ordered, so the eldest entry is the least recently used one. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * Returns the cached trip, or null if it is missing or expired.
+     */
+    public TripTrack get(String referenceNumber) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(referenceNumber);
+            return entry != null && entry.expiresAtNanos - System.nanoTime() > 0 ? entry.track : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the last cached trip even if it has expired, or {@link TripTrack#EMPTY}.
+     */
+    public TripTrack getKnown(String referenceNumber) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(referenceNumber);
+            return entry != null ? entry.track : TripTrack.EMPTY;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(String referenceNumber, TripTrack track) {
+        Entry entry = new Entry(track, System.nanoTime() + ttl.toNanos());
+        lock.lock();
+        try {
+            entries.put(referenceNumber, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry(TripTrack track, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,160 @@
+package com.sendify.server.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sendify.server.dto.internal.TripDto;
+
+/**
+ * Trip points of one shipment in primitive arrays: latitude and longitude interleaved in one {@code double[]},
+ * the last event code and date of each point in parallel {@code String[]}s.
+ *
+ * An instance is an immutable view of the first {@code size} slots. A refreshed trip is built with
+ * {@link #extend}: points equal to the known prefix are only compared, new points are written after it.
+ * Spare capacity behind the prefix is handed to the first extension only, later ones copy, so slots
+ * visible to an existing view never change. If the prefix itself changed, the new view gets fresh arrays
+ * and the next {@link #revision()}.
+ */
+public final class TripTrack {
+
+    public static final TripTrack EMPTY = new TripTrack(null, null, new double[0], new String[0], new String[0], 0, 0, null, new AtomicBoolean());
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final String start;
+    private final String end;
+    private final double[] coordinates;
+    private final String[] eventCodes;
+    private final String[] eventDates;
+    private final int size;
+    private final int revision;
+    private final String fetchedAt;
+    /** Set once the spare capacity behind {@code size} was handed to an extension; shared by views of the same slots. */
+    private final AtomicBoolean tailClaimed;
+
+    private TripTrack(String start, String end, double[] coordinates, String[] eventCodes, String[] eventDates,
+                      int size, int revision, String fetchedAt, AtomicBoolean tailClaimed) {
+        this.start = start;
+        this.end = end;
+        this.coordinates = coordinates;
+        this.eventCodes = eventCodes;
+        this.eventDates = eventDates;
+        this.size = size;
+        this.revision = revision;
+        this.fetchedAt = fetchedAt;
+        this.tailClaimed = tailClaimed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Incremented whenever a refresh changed points that were already known, not when points were only appended.
+     */
+    public int revision() {
+        return revision;
+    }
+
+    public Builder extend() {
+        return new Builder(this);
+    }
+
+    /**
+     * The points from {@code fromIndex} on. An index past the end yields no points.
+     */
+    public TripDto toDto(String referenceNumber, int fromIndex) {
+        int from = Math.min(Math.max(fromIndex, 0), size);
+        List<TripDto.TripPoint> points = new ArrayList<>(size - from);
+        for (int i = from; i < size; i++) {
+            points.add(TripDto.TripPoint.builder()
+                    .latitude(coordinates[2 * i])
+                    .longitude(coordinates[2 * i + 1])
+                    .lastEventCode(eventCodes[i])
+                    .lastEventDate(eventDates[i])
+                    .build());
+        }
+        return TripDto.builder()
+                .referenceNumber(referenceNumber)
+                .start(start)
+                .end(end)
+                .revision(revision)
+                .fromIndex(from)
+                .totalPoints(size)
+                .points(points)
+                .fetchedAt(fetchedAt)
+                .build();
+    }
+
+    /**
+     * Collects the points of a refreshed trip in order, reusing the arrays of the known track where possible.
+     */
+    public static final class Builder {
+        private final TripTrack known;
+        private double[] coordinates;
+        private String[] eventCodes;
+        private String[] eventDates;
+        private int count;
+        private boolean shared = true;
+        private boolean diverged;
+
+        private Builder(TripTrack known) {
+            this.known = known;
+            this.coordinates = known.coordinates;
+            this.eventCodes = known.eventCodes;
+            this.eventDates = known.eventDates;
+        }
+
+        public void add(double latitude, double longitude, String eventCode, String eventDate) {
+            int i = count;
+            if (shared && i < known.size) {
+                if (coordinates[2 * i] == latitude && coordinates[2 * i + 1] == longitude
+                        && Objects.equals(eventCodes[i], eventCode) && Objects.equals(eventDates[i], eventDate)) {
+                    count++;
+                    return;
+                }
+                diverged = true;
+                copy(i + 1);
+            } else if (i >= eventCodes.length || (shared && i == known.size && !known.tailClaimed.compareAndSet(false, true))) {
+                copy(i + 1);
+            }
+            coordinates[2 * i] = latitude;
+            coordinates[2 * i + 1] = longitude;
+            eventCodes[i] = eventCode;
+            eventDates[i] = eventDate;
+            count++;
+        }
+
+        /**
+         * Fewer points than known also count as a changed route.
+         */
+        public TripTrack build(String start, String end, String fetchedAt) {
+            boolean changed = diverged || count < known.size;
+            AtomicBoolean tailClaimed;
+            if (shared && count == known.size) {
+                // Same slots as the known view, so only one of the two may hand out the tail
+                tailClaimed = known.tailClaimed;
+            } else {
+                // The slots behind a shortened view are still visible to the known one
+                tailClaimed = new AtomicBoolean(shared && count < known.size);
+            }
+            return new TripTrack(start, end, coordinates, eventCodes, eventDates, count,
+                    changed ? known.revision + 1 : known.revision, fetchedAt, tailClaimed);
+        }
+
+        private void copy(int minCapacity) {
+            shared = false;
+            int capacity = capacityFor(minCapacity);
+            coordinates = Arrays.copyOf(coordinates, 2 * capacity);
+            eventCodes = Arrays.copyOf(eventCodes, capacity);
+            eventDates = Arrays.copyOf(eventDates, capacity);
+        }
+
+        private int capacityFor(int minCapacity) {
+            return Math.max(Math.max(minCapacity, eventCodes.length + (eventCodes.length >> 1)), MIN_CAPACITY);
+        }
+    }
+}
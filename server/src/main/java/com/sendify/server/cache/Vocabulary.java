@@ -0,0 +1,37 @@
+package com.sendify.server.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded pool of the strings shared by cached shipments. Event codes, locations and comments come from a
+ * small vocabulary, so each distinct value is kept once for all shipments. Once the pool is full, new values
+ * are stored as they are.
+ */
+final class Vocabulary {
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    Vocabulary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String known = values.get(value);
+        if (known != null) {
+            return known;
+        }
+        if (values.size() >= maxSize) {
+            return value;
+        }
+        known = values.putIfAbsent(value, value);
+        return known != null ? known : value;
+    }
+
+    int size() {
+        return values.size();
+    }
+}
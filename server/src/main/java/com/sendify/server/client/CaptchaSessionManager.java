@@ -0,0 +1,254 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shared captcha session state for all upstream requests.
+ * Keeps the most recently accepted captcha solution and the session cookies set by the upstream,
+ * so they can be sent proactively instead of waiting for the next 429. It also learns how long a
+ * solution stays valid, which {@link DbSchenkerClient} uses to refresh the token in the background
+ * before it is rejected on a user request.
+ *
+ * It also holds a small stock of pre-solved solutions that have not been sent yet. When a user request
+ * is challenged, a stocked solution is used instead of solving the puzzle on the request path. The stock
+ * size follows the recent rate of challenges on user requests and the observed solve time: enough
+ * solutions to cover the challenges expected while one refill round runs, at most {@code max-size}.
+ */
+@Component
+@Slf4j
+public class CaptchaSessionManager {
+
+    /** Weight of the newest observation in the token lifetime average. */
+    private static final double LIFETIME_SMOOTHING = 0.3;
+
+    /** Weight of the newest observation in the solve time average. */
+    private static final double SOLVE_TIME_SMOOTHING = 0.3;
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    @Value("${dbschenker.captcha.refresh-ratio:0.8}")
+    private double refreshRatio;
+
+    @Value("${dbschenker.captcha.refresh-idle-timeout:10m}")
+    private Duration refreshIdleTimeout;
+
+    @Value("${dbschenker.captcha.min-lifetime:5s}")
+    private Duration minLifetime;
+
+    @Value("${dbschenker.captcha.stock.max-size:4}")
+    private int stockMaxSize;
+
+    @Value("${dbschenker.captcha.stock.max-age:2m}")
+    private Duration stockMaxAge;
+
+    @Value("${dbschenker.captcha.stock.rate-window:5m}")
+    private Duration challengeRateWindow;
+
+    @Value("${dbschenker.captcha.stock.refill-interval:5s}")
+    private Duration stockRefillInterval;
+
+    private final Map<String, String> cookies = new ConcurrentHashMap<>();
+
+    /** Pre-solved solutions, oldest first. Guarded by {@code this}. */
+    private final Deque<Token> stock = new ArrayDeque<>();
+    /** Times of recent challenges on user requests, oldest first. */
+    private final ConcurrentLinkedDeque<Long> challenges = new ConcurrentLinkedDeque<>();
+    /** Smoothed time to solve one challenge in nanoseconds, 0 while unknown. */
+    private volatile long solveNanos;
+
+    private volatile Token current;
+    private volatile long lastAcceptedNanos = NEVER;
+    /** Smoothed observed token lifetime in nanoseconds, 0 while unknown. */
+    private volatile long lifetimeNanos;
+
+    /**
+     * Returns the solution to attach to the next request, or null if there is none.
+     */
+    public String currentSolution() {
+        Token token = current;
+        return token != null ? token.solution() : null;
+    }
+
+    /**
+     * Stores a freshly solved captcha as the current token.
+     */
+    public void onSolved(String solution) {
+        current = new Token(solution, System.nanoTime());
+    }
+
+    /**
+     * Called after a successful upstream response.
+     */
+    public void onAccepted(String solution) {
+        if (solution != null) {
+            lastAcceptedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Called when the upstream answers 429 although the given solution was sent.
+     * The token is dropped and its age is recorded as an observed lifetime. Tokens rejected younger than
+     * {@code min-lifetime} were refused for another reason (e.g. a lost session) and are not learned from.
+     */
+    public synchronized void onRejected(String solution) {
+        Token token = current;
+        if (solution == null || token == null || !token.solution().equals(solution)) {
+            return;
+        }
+        current = null;
+        long observed = System.nanoTime() - token.solvedAtNanos();
+        if (observed < minLifetime.toNanos()) {
+            log.debug("Captcha token rejected after {} ms, too young to update the lifetime", observed / 1_000_000);
+            return;
+        }
+        lifetimeNanos = lifetimeNanos == 0
+                ? observed
+                : (long) (LIFETIME_SMOOTHING * observed + (1 - LIFETIME_SMOOTHING) * lifetimeNanos);
+        log.debug("Captcha token rejected after {} ms, estimated lifetime {} ms",
+                observed / 1_000_000, lifetimeNanos / 1_000_000);
+    }
+
+    /**
+     * True when the current token is close to its learned lifetime and was used recently enough
+     * that refreshing it is worth a background solve.
+     */
+    public boolean isRefreshDue() {
+        Token token = current;
+        long lifetime = lifetimeNanos;
+        if (token == null || lifetime == 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long lastAccepted = lastAcceptedNanos;
+        boolean active = lastAccepted != NEVER && now - lastAccepted < refreshIdleTimeout.toNanos();
+        return active && now - token.solvedAtNanos() >= (long) (lifetime * refreshRatio);
+    }
+
+    /**
+     * Learned token lifetime, or null until the first token has been rejected.
+     */
+    public Duration tokenLifetime() {
+        long lifetime = lifetimeNanos;
+        return lifetime == 0 ? null : Duration.ofNanos(lifetime);
+    }
+
+    /**
+     * Called when a user request is answered with 429. Challenges provoked by refill requests are not counted.
+     */
+    public void onChallenged() {
+        long now = System.nanoTime();
+        challenges.addLast(now);
+        pruneChallenges(now);
+    }
+
+    /**
+     * Records how long solving one challenge took.
+     */
+    public void recordSolveTime(long nanos) {
+        long current = solveNanos;
+        solveNanos = current == 0 ? nanos : (long) (SOLVE_TIME_SMOOTHING * nanos + (1 - SOLVE_TIME_SMOOTHING) * current);
+    }
+
+    /**
+     * Takes the oldest pre-solved solution that is still fresh and makes it the current token,
+     * or returns null if the stock is empty. The token keeps its solve time, since its lifetime started then.
+     */
+    public synchronized String takePresolved() {
+        pruneStock(System.nanoTime());
+        Token token = stock.pollFirst();
+        if (token == null) {
+            return null;
+        }
+        current = token;
+        return token.solution();
+    }
+
+    public synchronized void addPresolved(String solution) {
+        stock.addLast(new Token(solution, System.nanoTime()));
+    }
+
+    /**
+     * Number of solutions to pre-solve now to reach the target stock size.
+     */
+    public synchronized int stockDeficit() {
+        pruneStock(System.nanoTime());
+        return Math.max(targetStockSize() - stock.size(), 0);
+    }
+
+    /**
+     * Challenges expected on user requests during one refill round, i.e. the refill interval plus the time
+     * to solve one challenge, at the rate observed over the rate window.
+     */
+    int targetStockSize() {
+        long now = System.nanoTime();
+        pruneChallenges(now);
+        int recent = challenges.size();
+        if (recent == 0) {
+            return 0;
+        }
+        double expected = (double) recent * (stockRefillInterval.toNanos() + solveNanos) / challengeRateWindow.toNanos();
+        return (int) Math.min(Math.ceil(expected), stockMaxSize);
+    }
+
+    private void pruneChallenges(long now) {
+        Long oldest;
+        while ((oldest = challenges.peekFirst()) != null && now - oldest > challengeRateWindow.toNanos()) {
+            challenges.remove(oldest);
+        }
+    }
+
+    private void pruneStock(long now) {
+        while (!stock.isEmpty() && now - stock.peekFirst().solvedAtNanos() > stockMaxAge.toNanos()) {
+            stock.pollFirst();
+        }
+    }
+
+    /**
+     * Remembers cookies set by the upstream, e.g. load balancer affinity or bot protection session.
+     */
+    public void captureCookies(HttpHeaders responseHeaders) {
+        if (responseHeaders == null) {
+            return;
+        }
+        List<String> setCookies = responseHeaders.get(HttpHeaders.SET_COOKIE);
+        if (setCookies == null) {
+            return;
+        }
+        for (String setCookie : setCookies) {
+            int end = setCookie.indexOf(';');
+            String pair = end >= 0 ? setCookie.substring(0, end) : setCookie;
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                cookies.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+            }
+        }
+    }
+
+    /**
+     * Cookie header value for the next request, or null if no cookies were set.
+     */
+    public String cookieHeader() {
+        if (cookies.isEmpty()) {
+            return null;
+        }
+        return cookies.entrySet().stream()
+                .map(cookie -> cookie.getKey() + "=" + cookie.getValue())
+                .collect(Collectors.joining("; "));
+    }
+
+    private record Token(String solution, long solvedAtNanos) {
+    }
+}
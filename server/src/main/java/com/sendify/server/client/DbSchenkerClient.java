@@ -1,23 +1,43 @@
 package com.sendify.server.client;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.cache.TripTrack;
 import com.sendify.server.dto.external.LandSttResponse;
+import com.sendify.server.dto.external.ShipmentResponse;
 import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.exception.CaptchaBudgetExhaustedException;
 import com.sendify.server.exception.CaptchaRequiredException;
+import com.sendify.server.exception.DeadlineExceededException;
+import com.sendify.server.exception.ShipmentNotFoundException;
 import com.sendify.server.exception.ShipmentTrackingException;
 import com.sendify.server.exception.TrackingReferenceMissingException;
+import com.sendify.server.exception.UpstreamOverloadedException;
 import com.sendify.server.mapper.LandSttResponseMapper;
+import com.sendify.server.mapper.LandSttStreamingDecoder;
+import com.sendify.server.metrics.TrackingMetrics;
+import com.sendify.server.store.SttIdIndexStore;
 import com.sendify.server.util.DbSchenkerCaptchaSolver;
+import com.sendify.server.util.SingleFlight;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,120 +53,451 @@ public class DbSchenkerClient {
     @Value("${dbschenker.tracking.max-retries}")
     private int maxRetries;
 
+    @Value("${dbschenker.captcha.probe-reference:0}")
+    private String captchaProbeReference;
+
+    @Value("${dbschenker.deadline.default-budget:30s}")
+    private Duration coalescedBudget;
+
     private final ObjectMapper objectMapper;
     private final RestTemplate restTemplate;
     private final LandSttResponseMapper landSttResponseMapper;
+    private final LandSttStreamingDecoder streamingDecoder;
     private final DbSchenkerCaptchaSolver captchaSolver;
+    private final SttIdIndexStore sttIdIndex;
+    private final CaptchaSessionManager captchaSession;
+    private final UpstreamRateLimiter rateLimiter;
+    private final UpstreamCircuitBreaker circuitBreaker;
+    private final UpstreamHedger hedger;
+    private final TrackingMetrics metrics;
+    private final ExecutorService lookupExecutor;
+
+    /** Concurrent lookups of the same reference or sttId share one upstream call. */
+    private final SingleFlight<String, ShipmentDetailsDto> referenceFlights = new SingleFlight<>();
+    private final SingleFlight<String, ShipmentDetailsDto> sttIdFlights = new SingleFlight<>();
+    private final SingleFlight<String, TripTrack> tripFlights = new SingleFlight<>();
 
     /**
      * Main entry point for tracking a shipment by reference number.
      * Throws if reference is missing or tracking fails.
+     * Concurrent calls for the same reference are coalesced into a single upstream lookup.
      */
     public ShipmentDetailsDto trackShipment(String referenceNumber) {
+        return trackShipment(referenceNumber, TrackingContext.unbounded());
+    }
+
+    /**
+     * Tracks a shipment within the limits of the given context, e.g. a captcha budget shared by a batch or a deadline.
+     * Once the deadline passes no further request, retry or captcha solve is started, a running solve is cancelled
+     * and a pending request times out.
+     *
+     * With a deadline, the lookup is shared with concurrent callers for the same reference, so it must not end at
+     * the deadline of whichever caller started it: it runs on the lookupExecutor until the later of that deadline
+     * and the default budget, and every caller, the one starting it included, stops waiting at its own deadline.
+     */
+    public ShipmentDetailsDto trackShipment(String referenceNumber, TrackingContext context) {
         if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
             throw new TrackingReferenceMissingException("Missing tracking reference");
         }
+        if (!context.hasDeadline()) {
+            return referenceFlights.execute(referenceNumber, () -> lookupShipment(referenceNumber, context));
+        }
+        TrackingContext shared = context.withDeadlineAtLeast(coalescedBudget);
+        return referenceFlights.execute(referenceNumber, () -> lookupShipment(referenceNumber, shared), lookupExecutor,
+                context.remainingNanos(), () -> deadlineExceeded(context, "waiting for the lookup of the reference"));
+    }
 
-        try {
+    /**
+     * Fetches the trip of a shipment and merges it into the known trip, see {@link TripTrack#extend()}.
+     * Concurrent calls for the same reference are coalesced into a single upstream lookup.
+     */
+    public TripTrack trackTrip(String referenceNumber, TripTrack known) {
+        if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
+            throw new TrackingReferenceMissingException("Missing tracking reference");
+        }
+        TrackingContext context = TrackingContext.unbounded();
+        return tripFlights.execute(referenceNumber, () -> throughCircuitBreaker(() -> {
+            String sttId = resolveSttId(referenceNumber, context);
+            return tripQuery(sttId, known, context);
+        }));
+    }
+
+    /**
+     * Returns every search result for the reference with its summary fields, from a single search request.
+     * The first result is recorded as the sttId of the reference, like a regular lookup does.
+     */
+    public List<ShipmentResponse.ShipmentResult> search(String referenceNumber) {
+        if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
+            throw new TrackingReferenceMissingException("Missing tracking reference");
+        }
+        List<ShipmentResponse.ShipmentResult> results = throughCircuitBreaker(
+                () -> searchQuery(referenceNumber, TrackingContext.unbounded()));
+        if (!results.isEmpty() && results.getFirst().getId() != null && sttIdIndex.find(referenceNumber) == null) {
+            sttIdIndex.put(referenceNumber, results.getFirst().getId());
+        }
+        return results;
+    }
+
+    /**
+     * Fetches the details of a shipment by its sttId, i.e. the {@code id} of a {@link #search} result.
+     */
+    public ShipmentDetailsDto trackSttId(String sttId) {
+        TrackingContext context = TrackingContext.unbounded();
+        return throughCircuitBreaker(() -> sttIdFlights.execute(sttId, () -> shipmentQuery(sttId, context)));
+    }
+
+    private ShipmentDetailsDto lookupShipment(String referenceNumber, TrackingContext context) {
+        return throughCircuitBreaker(() -> {
             // First, resolve the internal sttId from the reference number
-            String sttId = sttNumberQuery(referenceNumber, 0, null);
+            String sttId = resolveSttId(referenceNumber, context);
             // Then, fetch shipment details using the sttId
-            return shipmentQuery(sttId, 0, null);
+            return sttIdFlights.execute(sttId, () -> shipmentQuery(sttId, context),
+                    context.remainingNanos(), () -> context.deadlineExceeded("waiting for a lookup of the same shipment"));
+        });
+    }
+
+    /**
+     * Runs one lookup through the circuit breaker: while it is open the call fails fast with
+     * {@link com.sendify.server.exception.UpstreamUnavailableException}. Unknown references count as
+     * answered, requests shed by the local rate limiter, cut off by a deadline or by the captcha budget of the
+     * caller are not counted at all.
+     */
+    private <T> T throughCircuitBreaker(Supplier<T> lookup) {
+        circuitBreaker.acquirePermission();
+        long start = System.nanoTime();
+        try {
+            T result = lookup.get();
+            circuitBreaker.onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (ShipmentNotFoundException e) {
+            circuitBreaker.onSuccess(System.nanoTime() - start);
+            throw e;
+        } catch (UpstreamOverloadedException e) {
+            circuitBreaker.onIgnored();
+            throw e;
+        } catch (DeadlineExceededException e) {
+            // The caller's budget ran out, which says nothing about the upstream
+            circuitBreaker.onIgnored();
+            metrics.recordDeadlineExceeded();
+            throw e;
+        } catch (CaptchaBudgetExhaustedException e) {
+            // A batch used up its own captcha budget, the upstream is fine
+            circuitBreaker.onIgnored();
+            throw e;
         } catch (CaptchaRequiredException e) {
+            circuitBreaker.onFailure(System.nanoTime() - start);
             throw e;
         } catch (Exception e) {
+            circuitBreaker.onFailure(System.nanoTime() - start);
             throw new ShipmentTrackingException("Failed to track shipment: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Queries the tracking API to resolve a tracking number to an internal sttId.
-     * Handles captcha challenges and retries if necessary.
+     * Returns the sttId from the local index, or resolves it upstream and records it.
      */
-    private String sttNumberQuery(String trackingNumber, int retryCount, String captcha) {
-        try {
-            HttpHeaders headers = buildHeaders(captcha);
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    trackingApiBase + "?query=" + trackingNumber,
-                    HttpMethod.GET,
-                    entity,
-                    String.class
-            );
+    private String resolveSttId(String referenceNumber, TrackingContext context) {
+        String sttId = sttIdIndex.find(referenceNumber);
+        if (sttId == null) {
+            sttId = sttNumberQuery(referenceNumber, context);
+            sttIdIndex.put(referenceNumber, sttId);
+        }
+        return sttId;
+    }
 
-            var node = objectMapper.readTree(response.getBody());
-            return node.get("result").get(0).get("id").asText();
-        } catch (HttpClientErrorException e) {
-            // If captcha required, solve and retry
-            String captchaSolution = handleCaptchaError(e, retryCount);
-            return sttNumberQuery(trackingNumber, retryCount + 1, captchaSolution);
-        } catch (Exception e) {
-            throw new ShipmentTrackingException("Failed to query sttNumber: " + e.getMessage(), e);
+    /**
+     * Queries the tracking API to resolve a tracking number to an internal sttId.
+     * The id is read straight from the response stream, see {@link LandSttStreamingDecoder}.
+     */
+    private String sttNumberQuery(String trackingNumber, TrackingContext context) {
+        String sttId = exchange(TrackingMetrics.QUERY_STT, trackingApiBase + "?query=" + trackingNumber, false,
+                streamingDecoder::readFirstResultId, context);
+        if (sttId == null) {
+            throw new ShipmentNotFoundException("No shipment found for reference " + trackingNumber);
         }
+        return sttId;
     }
 
     /**
-     * Queries the shipment details using the resolved sttId.
-     * Handles captcha challenges and retries if necessary.
+     * Runs the same search request as {@link #sttNumberQuery} but decodes all results.
      */
-    private ShipmentDetailsDto shipmentQuery(String sttId, int retryCount, String captcha) {
-        log.debug("shipmentQuery called with sttId={}, retryCount={}, captcha={}", sttId, retryCount, captcha != null);
-        try {
-            HttpHeaders headers = buildHeaders(captcha);
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
+    private List<ShipmentResponse.ShipmentResult> searchQuery(String referenceNumber, TrackingContext context) {
+        return exchange(TrackingMetrics.QUERY_STT, trackingApiBase + "?query=" + referenceNumber, false,
+                streamingDecoder::readSearch, context).getResults();
+    }
 
-            ResponseEntity<String> response = restTemplate.exchange(
-                    trackingApiBase + "/land/" + sttId,
-                    HttpMethod.GET,
-                    entity,
-                    String.class
-            );
-            String landJson = response.getBody();
+    /**
+     * Queries the shipment details using the resolved sttId.
+     * Only the fields used by the mapper are decoded from the response stream.
+     * A slow /land response gets a hedged second request, see {@link UpstreamHedger}.
+     */
+    private ShipmentDetailsDto shipmentQuery(String sttId, TrackingContext context) {
+        LandSttResponse landSttResponse = exchange(TrackingMetrics.QUERY_LAND, trackingApiBase + "/land/" + sttId, true,
+                streamingDecoder::readLandStt, context);
+        // Map external response to internal DTO
+        ShipmentDetailsDto details = metrics.timeMapping(() -> landSttResponseMapper.map(landSttResponse));
+        details.setFetchedAt(Instant.now().toString());
+        return details;
+    }
 
-            LandSttResponse landSttResponse = objectMapper.readValue(landJson, LandSttResponse.class);
+    /**
+     * Queries the trip points using the resolved sttId, decoded on top of the known trip.
+     */
+    private TripTrack tripQuery(String sttId, TripTrack known, TrackingContext context) {
+        return exchange(TrackingMetrics.QUERY_TRIP, trackingApiBase + "/land/" + sttId + "/trip", false,
+                parser -> streamingDecoder.readTrip(parser, known, Instant.now().toString()), context);
+    }
 
-            // Map external response to internal DTO
-            return landSttResponseMapper.map(landSttResponse);
+    /**
+     * Sends one GET to the tracking API with the session token and cookies, and decodes the response stream.
+     * Handles captcha challenges and retries if necessary; a 404 means the upstream has nothing for the url.
+     * {@code query} tags the metrics and, if {@code hedged}, a slow response gets a second request.
+     */
+    private <T> T exchange(String query, String url, boolean hedged, ResponseDecoder<T> decoder, TrackingContext context) {
+        return exchange(query, url, hedged, decoder, 0, null, context);
+    }
 
+    private <T> T exchange(String query, String url, boolean hedged, ResponseDecoder<T> decoder,
+                           int retryCount, String captcha, TrackingContext context) {
+        log.debug("Upstream {} query {}, retryCount={}, captcha={}", query, url, retryCount, captcha != null);
+        // Without an explicit solution, reuse the shared session token
+        String solution = captcha != null ? captcha : captchaSession.currentSolution();
+        acquire(context);
+        long start = System.nanoTime();
+        try {
+            Supplier<T> request = () -> restTemplate.execute(
+                    url,
+                    HttpMethod.GET,
+                    httpRequest -> httpRequest.getHeaders().putAll(buildHeaders(solution)),
+                    response -> {
+                        onUpstreamResponse(response.getHeaders(), solution);
+                        long decodeStart = System.nanoTime();
+                        try (JsonParser parser = objectMapper.createParser(response.getBody())) {
+                            return decoder.decode(parser);
+                        } finally {
+                            metrics.recordDecode(query, System.nanoTime() - decodeStart);
+                        }
+                    }
+            );
+            T result = hedged ? hedger.executeHedged(query, request, context) : hedger.execute(request, context);
+            metrics.recordUpstreamRequest(query, TrackingMetrics.OUTCOME_SUCCESS, System.nanoTime() - start);
+            metrics.recordRetries(query, retryCount);
+            return result;
         } catch (HttpClientErrorException e) {
+            recordFailure(query, e, start);
+            if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
+                throw new ShipmentNotFoundException("Nothing found at " + url);
+            }
             // If captcha required, solve and retry
-            String captchaSolution = handleCaptchaError(e, retryCount);
-            return shipmentQuery(sttId, retryCount + 1, captchaSolution);
+            String captchaSolution = handleCaptchaError(e, retryCount, solution, context);
+            return exchange(query, url, hedged, decoder, retryCount + 1, captchaSolution, context);
+        } catch (ShipmentTrackingException | DeadlineExceededException | UpstreamOverloadedException e) {
+            throw e;
         } catch (Exception e) {
-            throw new ShipmentTrackingException("Failed to query shipment: " + e.getMessage(), e);
+            recordFailure(query, e, start);
+            throw new ShipmentTrackingException("Failed to query " + query + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void recordFailure(String query, Exception e, long start) {
+        boolean throttled = e instanceof HttpClientErrorException clientError
+                && clientError.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+        metrics.recordUpstreamRequest(query,
+                throttled ? TrackingMetrics.OUTCOME_THROTTLED : TrackingMetrics.OUTCOME_ERROR,
+                System.nanoTime() - start);
+        if (throttled) {
+            metrics.recordThrottled(query);
         }
     }
 
     /**
      * Handles HTTP 429 (Too Many Requests) errors that require captcha solving.
      * Throws if max retries exceeded or captcha puzzle is missing.
+     * The rejected solution is dropped from the session and the new one becomes the shared token.
+     * A pre-solved solution from the session stock is used when available, otherwise the puzzle is solved here.
+     * Also throws once the captcha budget of the calling context is used up, or its deadline leaves no time to retry.
+     * A 429 lowers the learned request rate, and the retry is delayed by a jittered exponential backoff.
      */
-    private String handleCaptchaError(HttpClientErrorException e, int retries) {
+    private String handleCaptchaError(HttpClientErrorException e, int retries, String rejectedSolution,
+                                      TrackingContext context) {
+        captchaSession.captureCookies(e.getResponseHeaders());
+        if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+            captchaSession.onRejected(rejectedSolution);
+            captchaSession.onChallenged();
+            rateLimiter.onThrottled();
+        }
         if (e.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS || retries >= maxRetries) {
             log.error("Captcha error or max retries reached: {}", e.getMessage());
             throw new CaptchaRequiredException("Failed to track shipment: " + e.getMessage(), e);
         }
+        context.checkDeadline("before solving a captcha");
+        if (!context.tryConsumeCaptcha()) {
+            throw new CaptchaBudgetExhaustedException("Captcha budget exhausted: " + e.getMessage(), e);
+        }
+        String solution = captchaSession.takePresolved();
+        if (solution == null) {
+            solution = solveCaptcha(e, context);
+        }
+        if (!rateLimiter.backoff(retries, context.remainingNanos())) {
+            throw context.deadlineExceeded("before retrying the request");
+        }
+        return solution;
+    }
+
+    /**
+     * Solves the puzzle carried by a 429 response and stores the solution as the session token.
+     * The search is cancelled once the deadline of the context passes.
+     */
+    private String solveCaptcha(HttpClientErrorException e, TrackingContext context) {
         String captchaPuzzleBase64 = e.getResponseHeaders().getFirst("captcha-puzzle");
         if (captchaPuzzleBase64 == null) {
             throw new CaptchaRequiredException("Captcha required but puzzle not provided");
         }
         // Solve captcha using the provided solver
-        return captchaSolver.generateCaptcha(captchaPuzzleBase64);
+        long start = System.nanoTime();
+        String solution;
+        try {
+            solution = context.hasDeadline()
+                    ? captchaSolver.generateCaptcha(captchaPuzzleBase64, context::isExpired)
+                    : captchaSolver.generateCaptcha(captchaPuzzleBase64);
+        } catch (CancellationException cancelled) {
+            throw context.deadlineExceeded("while solving a captcha");
+        }
+        captchaSession.recordSolveTime(System.nanoTime() - start);
+        captchaSession.onSolved(solution);
+        return solution;
+    }
+
+    /**
+     * Waits for the rate limiter, but not past the deadline of the context.
+     */
+    private void acquire(TrackingContext context) {
+        if (!context.hasDeadline()) {
+            rateLimiter.acquire();
+        } else if (!rateLimiter.tryAcquire(context.remainingNanos())) {
+            throw context.deadlineExceeded("waiting for the rate limiter");
+        }
+    }
+
+    private DeadlineExceededException deadlineExceeded(TrackingContext context, String step) {
+        metrics.recordDeadlineExceeded();
+        return context.deadlineExceeded(step);
+    }
+
+    private void onUpstreamResponse(HttpHeaders responseHeaders, String solution) {
+        captchaSession.captureCookies(responseHeaders);
+        captchaSession.onAccepted(solution);
+        rateLimiter.onSuccess();
     }
 
     /**
-     * Builds HTTP headers for requests, including captcha solution if provided.
+     * Refreshes the session captcha token off the request path once it approaches its learned lifetime.
+     * A cheap search request is sent without the current token; if the upstream answers with a challenge
+     * it is solved here, so user requests keep finding a valid token. The probe only takes a rate limiter slot
+     * that is free right now, otherwise the refresh waits for the next check.
+     */
+    @Scheduled(fixedDelayString = "${dbschenker.captcha.refresh-check-interval:10s}")
+    public void refreshCaptchaToken() {
+        if (!captchaSession.isRefreshDue()) {
+            return;
+        }
+        if (captchaSession.takePresolved() != null) {
+            log.debug("Captcha token refreshed from the pre-solved stock");
+            return;
+        }
+        if (circuitBreaker.isOpen() || !rateLimiter.tryAcquire(0)) {
+            log.debug("Captcha token refresh postponed, the upstream has no capacity to spare");
+            return;
+        }
+        try {
+            HttpClientErrorException challenge = probeCaptcha();
+            if (challenge != null) {
+                solveCaptcha(challenge, TrackingContext.unbounded());
+                log.debug("Captcha token refreshed in the background");
+            }
+        } catch (Exception e) {
+            log.warn("Background captcha refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tops up the pre-solved captcha stock, see {@link CaptchaSessionManager}. Each missing solution costs one
+     * probe request, which only takes a rate limiter slot that is free right now; the round stops early if no
+     * slot is free or the upstream does not challenge the probe, and is skipped while the circuit breaker is open.
+     */
+    @Scheduled(fixedDelayString = "${dbschenker.captcha.stock.refill-interval:5s}")
+    public void refillCaptchaStock() {
+        int missing = captchaSession.stockDeficit();
+        if (missing == 0 || circuitBreaker.isOpen()) {
+            return;
+        }
+        try {
+            for (int i = 0; i < missing; i++) {
+                if (!rateLimiter.tryAcquire(0)) {
+                    log.debug("No rate limit slot free for a captcha probe, {} of {} stock solutions added", i, missing);
+                    return;
+                }
+                HttpClientErrorException challenge = probeCaptcha();
+                String captchaPuzzleBase64 = challenge != null ? challenge.getResponseHeaders().getFirst("captcha-puzzle") : null;
+                if (captchaPuzzleBase64 == null) {
+                    log.debug("Captcha probe was not challenged, {} of {} stock solutions added", i, missing);
+                    return;
+                }
+                long start = System.nanoTime();
+                String solution = captchaSolver.generateCaptcha(captchaPuzzleBase64);
+                captchaSession.recordSolveTime(System.nanoTime() - start);
+                captchaSession.addPresolved(solution);
+            }
+            log.debug("Added {} pre-solved captcha solutions to the stock", missing);
+        } catch (Exception e) {
+            log.warn("Captcha stock refill failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Sends a cheap search request without a token. Returns the 429 response if the upstream answered
+     * with a captcha challenge, otherwise null.
+     */
+    private HttpClientErrorException probeCaptcha() {
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(
+                    trackingApiBase + "?query=" + captchaProbeReference,
+                    HttpMethod.GET,
+                    new HttpEntity<Void>(buildHeaders(null)),
+                    String.class
+            );
+            captchaSession.captureCookies(response.getHeaders());
+            return null;
+        } catch (HttpClientErrorException e) {
+            captchaSession.captureCookies(e.getResponseHeaders());
+            return e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS ? e : null;
+        }
+    }
+
+    /**
+     * Builds HTTP headers for requests, including captcha solution and session cookies if present.
      */
     private HttpHeaders buildHeaders(String captcha) {
         HttpHeaders headers = new HttpHeaders();
         if (captcha != null) {
             headers.set("captcha-solution", captcha);
-            log.info("Sending captcha-solution header: {}", captcha);
+            log.debug("Sending captcha-solution header: {}", captcha);
+        }
+        String cookies = captchaSession.cookieHeader();
+        if (cookies != null) {
+            headers.set(HttpHeaders.COOKIE, cookies);
         }
         headers.set("User-Agent", "Mozilla/5.0");
         headers.set("Accept", "application/json, text/plain, */*");
         headers.set("Accept-Language", "en-US,en;q=0.9");
         return headers;
     }
+
+    /**
+     * Reads the decoded value of a query from the response stream.
+     */
+    @FunctionalInterface
+    private interface ResponseDecoder<T> {
+        T decode(JsonParser parser) throws IOException;
+    }
 }
@@ -0,0 +1,54 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of the upstream exchange running on the current thread, set by {@link UpstreamHedger}.
+ * The HTTP layer (see RestTemplateConfig) caps its request timeout and connection wait with it, so the JDK
+ * client itself times out a request at the deadline of its {@link TrackingContext}, without a second thread
+ * having to watch it.
+ */
+public final class ExchangeDeadline {
+
+    /** The JDK client rejects non-positive timeouts; a request started at the deadline gets this much. */
+    private static final long MIN_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final ThreadLocal<TrackingContext> CURRENT = new ThreadLocal<>();
+
+    private ExchangeDeadline() {
+    }
+
+    /**
+     * Runs the exchange on the calling thread with the deadline of the context.
+     */
+    static <T> T runWithin(TrackingContext context, Supplier<T> exchange) {
+        if (!context.hasDeadline()) {
+            return exchange.get();
+        }
+        TrackingContext previous = CURRENT.get();
+        CURRENT.set(context);
+        try {
+            return exchange.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * {@code timeout}, or the time left until the deadline of the current exchange if that is shorter.
+     */
+    public static Duration cap(Duration timeout) {
+        TrackingContext context = CURRENT.get();
+        if (context == null) {
+            return timeout;
+        }
+        long remaining = Math.max(context.remainingNanos(), MIN_TIMEOUT_NANOS);
+        return remaining < timeout.toNanos() ? Duration.ofNanos(remaining) : timeout;
+    }
+}
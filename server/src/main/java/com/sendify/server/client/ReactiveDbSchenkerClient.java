@@ -0,0 +1,45 @@
+package com.sendify.server.client;
+
+import java.util.concurrent.ExecutorService;
+
+import org.springframework.stereotype.Service;
+
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.exception.TrackingReferenceMissingException;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive facade of {@link DbSchenkerClient}, used by the async MCP server.
+ *
+ * A lookup runs the blocking client on a virtual thread of the lookupExecutor, so the request, captcha,
+ * rate limit, circuit breaker, coalescing and metrics handling exist only once. The upstream I/O still blocks
+ * that virtual thread for the whole lookup; it just holds no platform thread while waiting. Cancelling the
+ * lookup interrupts its thread, which stops waiting; a lookup shared with other callers of the same reference
+ * goes on within its deadline.
+ */
+@Service
+public class ReactiveDbSchenkerClient {
+
+    private final DbSchenkerClient dbSchenkerClient;
+    private final Scheduler lookupScheduler;
+
+    public ReactiveDbSchenkerClient(DbSchenkerClient dbSchenkerClient, ExecutorService lookupExecutor) {
+        this.dbSchenkerClient = dbSchenkerClient;
+        this.lookupScheduler = Schedulers.fromExecutorService(lookupExecutor, "reactive-lookup");
+    }
+
+    /**
+     * Tracks a shipment by reference number within the limits of the context.
+     * Nothing is sent until the returned Mono is subscribed.
+     */
+    public Mono<ShipmentDetailsDto> trackShipment(String referenceNumber, TrackingContext context) {
+        if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
+            return Mono.error(new TrackingReferenceMissingException("Missing tracking reference"));
+        }
+        return Mono.fromCallable(() -> dbSchenkerClient.trackShipment(referenceNumber, context))
+                .subscribeOn(lookupScheduler);
+    }
+}
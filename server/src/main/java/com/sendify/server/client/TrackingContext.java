@@ -0,0 +1,105 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sendify.server.exception.DeadlineExceededException;
+
+/**
+ * Per-call limits for a tracking lookup, shared by all lookups started with the same context.
+ * A batch uses one context for all of its references, so they draw from a common captcha budget.
+ * A deadline bounds the whole lookup: every request, retry, backoff and captcha solve has to fit before it.
+ */
+public final class TrackingContext {
+
+    private static final TrackingContext UNBOUNDED = new TrackingContext(null, false, 0);
+
+    /** Remaining captcha solves, or null when unlimited. */
+    private final AtomicInteger captchaBudget;
+    private final boolean hasDeadline;
+    /** {@link System#nanoTime()} by which the lookup has to finish, if {@link #hasDeadline}. */
+    private final long deadlineNanos;
+
+    private TrackingContext(AtomicInteger captchaBudget, boolean hasDeadline, long deadlineNanos) {
+        this.captchaBudget = captchaBudget;
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Context without limits, used for single lookups.
+     */
+    public static TrackingContext unbounded() {
+        return UNBOUNDED;
+    }
+
+    /**
+     * Context that allows at most {@code maxCaptchas} captcha solves across all lookups using it.
+     */
+    public static TrackingContext withCaptchaBudget(int maxCaptchas) {
+        return new TrackingContext(new AtomicInteger(maxCaptchas), false, 0);
+    }
+
+    /**
+     * This context with a deadline {@code budget} from now, or its current deadline if that is earlier.
+     * The captcha budget is shared with this context.
+     */
+    public TrackingContext withDeadline(Duration budget) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        if (hasDeadline && deadlineNanos - deadline < 0) {
+            return this;
+        }
+        return new TrackingContext(captchaBudget, true, deadline);
+    }
+
+    /**
+     * This context with its deadline moved to {@code budget} from now if that is later; without a deadline
+     * it stays unbounded. The captcha budget is shared with this context.
+     */
+    public TrackingContext withDeadlineAtLeast(Duration budget) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        if (!hasDeadline || deadlineNanos - deadline >= 0) {
+            return this;
+        }
+        return new TrackingContext(captchaBudget, true, deadline);
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * Nanoseconds left until the deadline, {@link Long#MAX_VALUE} without one. Negative once it has passed.
+     */
+    public long remainingNanos() {
+        return hasDeadline ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Throws if the deadline has passed, so the given step is not started.
+     * {@code step} completes the message, e.g. {@code "before querying the shipment"}.
+     */
+    public void checkDeadline(String step) {
+        if (isExpired()) {
+            throw deadlineExceeded(step);
+        }
+    }
+
+    public DeadlineExceededException deadlineExceeded(String step) {
+        return new DeadlineExceededException("Deadline exceeded " + step);
+    }
+
+    /**
+     * Takes one captcha solve from the budget. Returns false once the budget is used up.
+     */
+    public boolean tryConsumeCaptcha() {
+        if (captchaBudget == null) {
+            return true;
+        }
+        return captchaBudget.getAndUpdate(remaining -> remaining > 0 ? remaining - 1 : 0) > 0;
+    }
+}
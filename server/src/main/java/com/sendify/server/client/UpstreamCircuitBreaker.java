@@ -0,0 +1,215 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.sendify.server.exception.UpstreamUnavailableException;
+import com.sendify.server.metrics.TrackingMetrics;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker around complete upstream lookups (sttId resolution, shipment query and all captcha retries).
+ *
+ * The outcomes of the last {@code window-size} lookups are kept in a ring buffer. Once at least
+ * {@code minimum-calls} are recorded, the breaker opens if the share of failed lookups reaches
+ * {@code failure-rate-threshold}, or the share of lookups slower than {@code slow-call-duration} reaches
+ * {@code slow-call-rate-threshold}. While open, lookups fail immediately with
+ * {@link UpstreamUnavailableException}. After {@code open-duration} up to {@code half-open-calls} trial
+ * lookups are let through: all of them succeeding closes the breaker, any failure opens it again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UpstreamCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Value("${dbschenker.circuit-breaker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dbschenker.circuit-breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${dbschenker.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${dbschenker.circuit-breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${dbschenker.circuit-breaker.slow-call-duration:20s}")
+    private Duration slowCallDuration;
+
+    @Value("${dbschenker.circuit-breaker.slow-call-rate-threshold:0.8}")
+    private double slowCallRateThreshold;
+
+    @Value("${dbschenker.circuit-breaker.open-duration:30s}")
+    private Duration openDuration;
+
+    @Value("${dbschenker.circuit-breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    private final TrackingMetrics metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private boolean[] failed;
+    private boolean[] slow;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    @PostConstruct
+    void init() {
+        failed = new boolean[windowSize];
+        slow = new boolean[windowSize];
+    }
+
+    /**
+     * Lets a lookup through or throws {@link UpstreamUnavailableException} while the breaker is open.
+     * Every permitted lookup must report exactly one of {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+     */
+    public void acquirePermission() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDuration.toNanos()) {
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.OPEN) {
+                long retryInMillis = TimeUnit.NANOSECONDS.toMillis(openDuration.toNanos() - (System.nanoTime() - openedAtNanos));
+                throw new UpstreamUnavailableException(
+                        "Upstream tracking API is unavailable, try again in " + Math.max(retryInMillis, 0) + " ms");
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialsStarted >= halfOpenCalls) {
+                    throw new UpstreamUnavailableException("Upstream tracking API is recovering, try again shortly");
+                }
+                trialsStarted++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True while lookups would be rejected, without taking a trial slot.
+     */
+    public boolean isOpen() {
+        if (!enabled) {
+            return false;
+        }
+        lock.lock();
+        try {
+            return state == State.OPEN && System.nanoTime() - openedAtNanos < openDuration.toNanos();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long nanos) {
+        record(false, nanos);
+    }
+
+    public void onFailure(long nanos) {
+        record(true, nanos);
+    }
+
+    /**
+     * The lookup ended for a reason that says nothing about the upstream, e.g. it was shed locally.
+     */
+    public void onIgnored() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) {
+                trialsStarted--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        boolean slowCall = nanos >= slowCallDuration.toNanos();
+        lock.lock();
+        try {
+            switch (state) {
+                case HALF_OPEN -> {
+                    if (failure || slowCall) {
+                        transitionTo(State.OPEN);
+                    } else if (++trialsSucceeded >= halfOpenCalls) {
+                        transitionTo(State.CLOSED);
+                    }
+                }
+                case CLOSED -> {
+                    if (recorded == windowSize) {
+                        failures -= failed[next] ? 1 : 0;
+                        slowCalls -= slow[next] ? 1 : 0;
+                    } else {
+                        recorded++;
+                    }
+                    failed[next] = failure;
+                    slow[next] = slowCall;
+                    failures += failure ? 1 : 0;
+                    slowCalls += slowCall ? 1 : 0;
+                    next = (next + 1) % windowSize;
+                    if (recorded >= minimumCalls
+                            && (failures >= failureRateThreshold * recorded || slowCalls >= slowCallRateThreshold * recorded)) {
+                        log.warn("Upstream circuit opened: {} of {} lookups failed, {} were slow", failures, recorded, slowCalls);
+                        transitionTo(State.OPEN);
+                    }
+                }
+                // Lookups that were already running when the breaker opened do not change it
+                case OPEN -> { }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void transitionTo(State target) {
+        state = target;
+        trialsStarted = 0;
+        trialsSucceeded = 0;
+        if (target == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        }
+        if (target == State.CLOSED) {
+            next = 0;
+            recorded = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+        metrics.recordCircuitTransition(target.name().toLowerCase());
+        log.debug("Upstream circuit breaker is now {}", target);
+    }
+}
@@ -0,0 +1,208 @@
+package com.sendify.server.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.sendify.server.exception.DeadlineExceededException;
+import com.sendify.server.exception.ShipmentTrackingException;
+import com.sendify.server.metrics.TrackingMetrics;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs single upstream exchanges within the deadline of their {@link TrackingContext}, optionally hedged.
+ *
+ * An exchange runs on the calling thread. Its deadline caps the request timeout of the JDK client (see
+ * {@link ExchangeDeadline}), so the client times the request out at the deadline and the failure is reported
+ * as {@link DeadlineExceededException}, which the circuit breaker ignores.
+ * Only a hedged exchange runs on the exchangeExecutor, once the hedge delay is known: it sends a second,
+ * identical request once the first has been pending for the {@code quantile} latency of the last
+ * {@code window-size} successful hedgeable exchanges, provided the rate limiter has a slot free right now.
+ * The first successful response wins and the other request is cancelled.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UpstreamHedger {
+
+    @Value("${dbschenker.hedge.enabled:false}")
+    private boolean enabled;
+
+    @Value("${dbschenker.hedge.quantile:0.95}")
+    private double quantile;
+
+    @Value("${dbschenker.hedge.window-size:200}")
+    private int windowSize;
+
+    @Value("${dbschenker.hedge.min-samples:20}")
+    private int minSamples;
+
+    private final ExecutorService exchangeExecutor;
+    private final UpstreamRateLimiter rateLimiter;
+    private final TrackingMetrics metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Ring buffer of the latest successful latencies. */
+    private long[] latencies;
+    private int samples;
+    private int nextSample;
+    /** Hedge delay derived from the window, recomputed after every tenth of the window; -1 while unknown. */
+    private long hedgeDelayNanos = -1;
+    private int samplesSinceUpdate;
+
+    @PostConstruct
+    void init() {
+        latencies = new long[windowSize];
+    }
+
+    /**
+     * Runs the exchange on the calling thread; its request times out at the deadline of the context.
+     */
+    public <T> T execute(Supplier<T> exchange, TrackingContext context) {
+        if (!context.hasDeadline()) {
+            return exchange.get();
+        }
+        context.checkDeadline("before calling the upstream");
+        try {
+            return ExchangeDeadline.runWithin(context, exchange);
+        } catch (RuntimeException e) {
+            throw deadlineFailure(e, context);
+        }
+    }
+
+    /**
+     * Runs the exchange like {@link #execute}, and sends a hedged second request if the first is slow.
+     * {@code query} tags the hedge metrics.
+     */
+    public <T> T executeHedged(String query, Supplier<T> exchange, TrackingContext context) {
+        if (!enabled) {
+            return execute(exchange, context);
+        }
+        Supplier<T> timed = () -> {
+            long start = System.nanoTime();
+            T result = exchange.get();
+            recordLatency(System.nanoTime() - start);
+            return result;
+        };
+        long delay = hedgeDelayNanos();
+        if (delay < 0) {
+            return execute(timed, context);
+        }
+        return race(timed, context, query, delay);
+    }
+
+    /**
+     * The current hedge delay, or -1 while fewer than {@code min-samples} latencies are known.
+     */
+    public long hedgeDelayNanos() {
+        lock.lock();
+        try {
+            return hedgeDelayNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void recordLatency(long nanos) {
+        lock.lock();
+        try {
+            latencies[nextSample] = nanos;
+            nextSample = (nextSample + 1) % latencies.length;
+            samples = Math.min(samples + 1, latencies.length);
+            if (samples >= minSamples && (hedgeDelayNanos < 0 || ++samplesSinceUpdate >= Math.max(latencies.length / 10, 1))) {
+                long[] sorted = Arrays.copyOf(latencies, samples);
+                Arrays.sort(sorted);
+                hedgeDelayNanos = sorted[Math.min((int) Math.ceil(quantile * samples) - 1, samples - 1)];
+                samplesSinceUpdate = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the first successful exchange until the deadline, starting a second exchange after
+     * {@code hedgeDelayNanos}. If every started exchange failed, the first failure is thrown.
+     */
+    private <T> T race(Supplier<T> exchange, TrackingContext context, String query, long hedgeDelayNanos) {
+        context.checkDeadline("before calling the upstream");
+        Callable<T> bounded = () -> ExchangeDeadline.runWithin(context, exchange);
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(exchangeExecutor);
+        List<Future<T>> started = new ArrayList<>(2);
+        started.add(completion.submit(bounded));
+        try {
+            Future<T> done = completion.poll(Math.min(hedgeDelayNanos, Math.max(context.remainingNanos(), 0)), TimeUnit.NANOSECONDS);
+            if (done == null && !context.isExpired() && rateLimiter.tryAcquire(0)) {
+                log.debug("Upstream exchange pending for {} ms, sending a hedged request", TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos));
+                started.add(completion.submit(bounded));
+            }
+            int outstanding = started.size();
+            ExecutionException failure = null;
+            while (true) {
+                if (done == null) {
+                    long remaining = context.remainingNanos();
+                    done = remaining > 0 ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (done == null) {
+                        throw context.deadlineExceeded("waiting for the upstream");
+                    }
+                }
+                outstanding--;
+                try {
+                    T result = done.get();
+                    if (started.size() > 1) {
+                        metrics.recordHedge(query, done == started.getFirst() ? "primary" : "hedge");
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    if (outstanding == 0) {
+                        throw deadlineFailure(unwrap(failure), context);
+                    }
+                }
+                done = null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ShipmentTrackingException("Interrupted while waiting for the upstream", e);
+        } finally {
+            started.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * The request timeout is capped at the deadline, so an exchange failing after it was most likely timed out
+     * by it. That is reported as the deadline, not as an upstream failure.
+     */
+    private static RuntimeException deadlineFailure(RuntimeException e, TrackingContext context) {
+        if (e instanceof DeadlineExceededException || !context.isExpired()) {
+            return e;
+        }
+        return context.deadlineExceeded("waiting for the upstream");
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException re) {
+            return re;
+        }
+        if (e.getCause() instanceof Error error) {
+            throw error;
+        }
+        return new ShipmentTrackingException("Upstream exchange failed: " + e.getCause().getMessage(), e.getCause());
+    }
+}
@@ -0,0 +1,238 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.sendify.server.exception.ShipmentTrackingException;
+import com.sendify.server.exception.UpstreamOverloadedException;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Client-side admission control for upstream requests.
+ *
+ * A token bucket whose refill rate is adjusted with AIMD: every successful response raises the rate
+ * by roughly {@code additive-increase} requests per second, every 429 multiplies it by
+ * {@code decrease-factor} (at most once per {@code decrease-cooldown}, so a burst of 429s from requests
+ * that were already in flight counts as one signal). The rate therefore settles just below the point
+ * where the upstream starts handing out captchas.
+ *
+ * Requests that would have to wait longer than {@code max-queue-wait} for a slot are shed with
+ * {@link UpstreamOverloadedException} instead of piling up.
+ */
+@Component
+@Slf4j
+public class UpstreamRateLimiter {
+
+    @Value("${dbschenker.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dbschenker.rate-limit.initial-rate:5}")
+    private double initialRate;
+
+    @Value("${dbschenker.rate-limit.min-rate:0.5}")
+    private double minRate;
+
+    @Value("${dbschenker.rate-limit.max-rate:50}")
+    private double maxRate;
+
+    @Value("${dbschenker.rate-limit.burst:5}")
+    private int burst;
+
+    @Value("${dbschenker.rate-limit.additive-increase:0.5}")
+    private double additiveIncrease;
+
+    @Value("${dbschenker.rate-limit.decrease-factor:0.5}")
+    private double decreaseFactor;
+
+    @Value("${dbschenker.rate-limit.decrease-cooldown:1s}")
+    private Duration decreaseCooldown;
+
+    @Value("${dbschenker.rate-limit.max-queue-wait:5s}")
+    private Duration maxQueueWait;
+
+    @Value("${dbschenker.rate-limit.backoff-base:100ms}")
+    private Duration backoffBase;
+
+    @Value("${dbschenker.rate-limit.backoff-max:5s}")
+    private Duration backoffMax;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Current refill rate in requests per second. */
+    private double rate;
+    /** Available tokens; negative when requests are queued for future slots. */
+    private double tokens;
+    private long lastRefillNanos;
+    private long lastDecreaseNanos;
+
+    @PostConstruct
+    void init() {
+        rate = Math.clamp(initialRate, minRate, maxRate);
+        tokens = burst;
+        lastRefillNanos = System.nanoTime();
+        lastDecreaseNanos = lastRefillNanos - decreaseCooldown.toNanos();
+    }
+
+    /**
+     * Blocks until the caller may send a request.
+     * Throws {@link UpstreamOverloadedException} if the wait would exceed the configured maximum.
+     */
+    public void acquire() {
+        Duration wait = reserve();
+        if (!wait.isZero()) {
+            sleep(wait.toNanos());
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #acquire()}: reserves a slot and returns how long the caller has to wait
+     * before sending, so reactive callers can delay on a timer instead of sleeping.
+     * Throws {@link UpstreamOverloadedException} if the wait would exceed the configured maximum.
+     */
+    public Duration reserve() {
+        return Duration.ofNanos(reserveNanos(Long.MAX_VALUE));
+    }
+
+    /**
+     * Like {@link #acquire()}, but returns false without taking a slot if the caller would have to wait
+     * longer than {@code maxWaitNanos}, e.g. past its deadline. With 0 it only takes a slot that is free now.
+     */
+    public boolean tryAcquire(long maxWaitNanos) {
+        long waitNanos = reserveNanos(maxWaitNanos);
+        if (waitNanos < 0) {
+            return false;
+        }
+        if (waitNanos > 0) {
+            sleep(waitNanos);
+        }
+        return true;
+    }
+
+    /**
+     * Reserves a slot and returns the wait before it, or -1 without reserving if that exceeds {@code maxWaitNanos}.
+     */
+    private long reserveNanos(long maxWaitNanos) {
+        if (!enabled) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            refill(System.nanoTime());
+            long waitNanos = tokens >= 1 ? 0 : (long) ((1 - tokens) / rate * 1_000_000_000L);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            if (waitNanos > maxQueueWait.toNanos()) {
+                throw new UpstreamOverloadedException(
+                        "Upstream request rate exceeded, try again in " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms");
+            }
+            // Reserve the slot now so later callers queue behind this one
+            tokens -= 1;
+            return waitNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Additive increase after a successful upstream response.
+     */
+    public void onSuccess() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            // Dividing by the rate makes the increase roughly additiveIncrease per second at any rate
+            rate = Math.min(maxRate, rate + additiveIncrease / rate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Multiplicative decrease after the upstream throttled us with a 429.
+     */
+    public void onThrottled() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (now - lastDecreaseNanos < decreaseCooldown.toNanos()) {
+                return;
+            }
+            refill(now);
+            lastDecreaseNanos = now;
+            rate = Math.max(minRate, rate * decreaseFactor);
+            tokens = Math.min(tokens, 0);
+            log.debug("Upstream throttled, request rate lowered to {} req/s", String.format("%.2f", rate));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sleeps for a random delay in [0, min(backoff-max, backoff-base * 2^attempt)) ("full jitter"),
+     * so retries of requests that were throttled together do not hit the upstream together again.
+     */
+    public void backoff(int attempt) {
+        backoff(attempt, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #backoff(int)}, but returns false without sleeping if the delay would exceed {@code maxDelayNanos}.
+     */
+    public boolean backoff(int attempt, long maxDelayNanos) {
+        Duration delay = backoffDelay(attempt);
+        if (delay.toNanos() > maxDelayNanos) {
+            return false;
+        }
+        if (!delay.isZero()) {
+            sleep(delay.toNanos());
+        }
+        return true;
+    }
+
+    /**
+     * The jittered delay {@link #backoff(int)} sleeps for, for callers that wait without blocking.
+     */
+    public Duration backoffDelay(int attempt) {
+        long ceiling = Math.min(backoffMax.toNanos(), backoffBase.toNanos() << Math.min(attempt, 20));
+        return ceiling > 0 ? Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling)) : Duration.ZERO;
+    }
+
+    /**
+     * Current learned request rate in requests per second.
+     */
+    public double currentRate() {
+        lock.lock();
+        try {
+            return rate;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1_000_000_000.0 * rate);
+        lastRefillNanos = now;
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ShipmentTrackingException("Interrupted while waiting for the upstream", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.sendify.server.config;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.annotation.RegisterReflection;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+
+import com.sendify.server.cache.ShipmentCache;
+import com.sendify.server.dto.external.LandSttResponse;
+import com.sendify.server.dto.external.ShipmentResponse;
+import com.sendify.server.dto.external.TripResponse;
+import com.sendify.server.dto.internal.BatchItemResult;
+import com.sendify.server.dto.internal.BatchTrackingRequest;
+import com.sendify.server.dto.internal.CompactShipmentDto;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.dto.internal.ShipmentEventDelta;
+import com.sendify.server.dto.internal.ShipmentHistoryRecord;
+import com.sendify.server.dto.internal.ShipmentSearchResult;
+import com.sendify.server.dto.internal.TripDto;
+import com.sendify.server.mcp.AsyncShipmentTool;
+import com.sendify.server.mcp.ShipmentTool;
+
+/**
+ * Reflection hints for Spring AOT and GraalVM native images.
+ *
+ * Jackson binds the Lombok DTOs through their getters and setters, which AOT cannot infer from
+ * the bean definitions. Binding hints are registered recursively, so nested types such as
+ * {@code LandSttResponse.TrackingEvent} are covered by their outer class. The MCP tool methods are
+ * discovered and invoked reflectively by Spring AI.
+ */
+@Configuration
+@RegisterReflectionForBinding({
+        LandSttResponse.class,
+        ShipmentResponse.class,
+        TripResponse.class,
+        ShipmentDetailsDto.class,
+        BatchItemResult.class,
+        BatchTrackingRequest.class,
+        CompactShipmentDto.class,
+        ShipmentEventDelta.class,
+        ShipmentHistoryRecord.class,
+        ShipmentSearchResult.class,
+        TripDto.class,
+        ShipmentCache.Stats.class
+})
+@RegisterReflection(classes = {ShipmentTool.class, AsyncShipmentTool.class}, memberCategories = MemberCategory.INVOKE_PUBLIC_METHODS)
+public class AotHintsConfig {
+}
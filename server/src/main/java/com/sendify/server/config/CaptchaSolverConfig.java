@@ -0,0 +1,30 @@
+package com.sendify.server.config;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CaptchaSolverConfig {
+
+    /**
+     * Dedicated pool for the CPU-bound proof-of-work search.
+     * Kept separate from the servlet threads so a hard captcha cannot starve request handling.
+     * A parallelism of 0 (default) uses half of the available cores.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ForkJoinPool captchaSolverPool(@Value("${dbschenker.captcha.parallelism:0}") int parallelism) {
+        int cores = parallelism > 0
+                ? parallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new ForkJoinPool(cores, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("captcha-solver-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+}
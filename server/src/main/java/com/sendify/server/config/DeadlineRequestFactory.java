@@ -0,0 +1,49 @@
+package com.sendify.server.config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import com.sendify.server.client.ExchangeDeadline;
+
+/**
+ * Creates JDK HttpClient requests that time out after {@code readTimeout}, or at the deadline of the exchange
+ * running on the calling thread if that comes first (see {@link ExchangeDeadline}).
+ * JdkClientHttpRequestFactory only has one timeout for all requests, so a request with an earlier deadline
+ * gets a factory of its own; it is a few fields around the shared HttpClient.
+ */
+class DeadlineRequestFactory implements ClientHttpRequestFactory {
+
+    private final HttpClient httpClient;
+    /** Streams request bodies; shared instead of every per-request factory creating its own. */
+    private final Executor executor;
+    private final Duration readTimeout;
+    private final JdkClientHttpRequestFactory defaultFactory;
+
+    DeadlineRequestFactory(HttpClient httpClient, Duration readTimeout) {
+        this.httpClient = httpClient;
+        this.executor = httpClient.executor().orElseGet(SimpleAsyncTaskExecutor::new);
+        this.readTimeout = readTimeout;
+        this.defaultFactory = factory(readTimeout);
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        Duration timeout = ExchangeDeadline.cap(readTimeout);
+        return (timeout == readTimeout ? defaultFactory : factory(timeout)).createRequest(uri, httpMethod);
+    }
+
+    private JdkClientHttpRequestFactory factory(Duration timeout) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient, executor);
+        factory.setReadTimeout(timeout);
+        return factory;
+    }
+}
@@ -0,0 +1,59 @@
+package com.sendify.server.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Executor for blocking upstream work started by the service itself (fan-out, background refreshes).
+ * With spring.threads.virtual.enabled=true it creates a virtual thread per task, matching the servlet
+ * and MCP threads; otherwise it is a bounded platform pool. CPU-bound captcha solving never runs here,
+ * it stays on the separate captchaSolverPool (see CaptchaSolverConfig).
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService upstreamExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${dbschenker.upstream.platform-threads:32}") int platformThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upstream-", 0).factory());
+        }
+        ThreadFactory factory = Thread.ofPlatform().name("upstream-", 0).daemon(true).factory();
+        return Executors.newFixedThreadPool(platformThreads, factory);
+    }
+
+    /**
+     * Virtual threads for hedged upstream exchanges (see UpstreamHedger), whatever spring.threads.virtual.enabled
+     * says. Only a hedged exchange leaves the calling thread, and it spends its time waiting on the upstream,
+     * so a platform thread per exchange would buy nothing. Each caller waits for at most two of them.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService exchangeExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("exchange-", 0).factory());
+    }
+
+    /**
+     * Virtual threads for the lookups of the reactive client (see ReactiveDbSchenkerClient), whatever
+     * spring.threads.virtual.enabled says: a lookup waiting on the upstream must not hold a platform thread.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService lookupExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lookup-", 0).factory());
+    }
+
+    /**
+     * Single timer thread shared by all shipment watches. It only schedules polls,
+     * the upstream calls themselves run on the upstreamExecutor.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService watchScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("shipment-watch").daemon(true).factory());
+    }
+}
@@ -1,13 +1,70 @@
 package com.sendify.server.config;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * Upstream HTTP layer used by DbSchenkerClient.
+ * Backed by the JDK HttpClient, which keeps connections alive and negotiates HTTP/2 (multiplexing all
+ * requests to dbschenker.com over one connection) where the upstream supports it.
+ * A request times out after the read timeout, or earlier at the deadline of its lookup.
+ */
 @Configuration
 public class RestTemplateConfig {
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public HttpClient dbSchenkerHttpClient(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${dbschenker.tracking.http2:true}") boolean http2,
+            @Value("${dbschenker.tracking.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${dbschenker.tracking.pool.idle-timeout:60s}") Duration idleTimeout,
+            @Value("${dbschenker.tracking.pool.max-idle-connections:0}") int maxIdleConnections) {
+        // The JDK connection pool reads these once, when the first HttpClient is created; explicit -D flags win
+        setIfAbsent("jdk.httpclient.keepalive.timeout", String.valueOf(idleTimeout.toSeconds()));
+        setIfAbsent("jdk.httpclient.keepalive.timeout.h2", String.valueOf(idleTimeout.toSeconds()));
+        setIfAbsent("jdk.httpclient.connectionPoolSize", String.valueOf(maxIdleConnections));
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (virtualThreads) {
+            // Response handling runs on virtual threads too; otherwise the client keeps its default cached pool
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(
+            HttpClient dbSchenkerHttpClient,
+            @Value("${dbschenker.tracking.read-timeout:20s}") Duration readTimeout,
+            @Value("${dbschenker.tracking.pool.max-connections-per-route:20}") int maxConnectionsPerRoute,
+            @Value("${dbschenker.tracking.compression:true}") boolean compression) {
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+        // A slot is freed at the latest when a running exchange times out, so waiting longer is pointless
+        interceptors.add(new RouteConcurrencyInterceptor(maxConnectionsPerRoute, readTimeout));
+        if (compression) {
+            interceptors.add(new GzipResponseInterceptor());
+        }
+
+        RestTemplate restTemplate = new RestTemplate(new DeadlineRequestFactory(dbSchenkerHttpClient, readTimeout));
+        restTemplate.setInterceptors(interceptors);
+        return restTemplate;
+    }
+
+    private static void setIfAbsent(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package com.sendify.server.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import com.sendify.server.client.ExchangeDeadline;
+import com.sendify.server.exception.UpstreamOverloadedException;
+
+/**
+ * Caps the number of concurrent exchanges per route (scheme, host and port).
+ * The JDK HttpClient pool has no per-route limit, so over HTTP/1.1 this bounds the connections
+ * opened to one host. A permit is held until the response is closed, i.e. until its body has been read.
+ * A request that gets no permit within {@code maxWait}, or by the deadline of its exchange (see
+ * {@link ExchangeDeadline}), fails with {@link UpstreamOverloadedException} instead of queueing behind
+ * stalled exchanges.
+ */
+class RouteConcurrencyInterceptor implements ClientHttpRequestInterceptor {
+
+    private final int maxPerRoute;
+    private final Duration maxWait;
+    private final Map<String, Semaphore> routes = new ConcurrentHashMap<>();
+
+    RouteConcurrencyInterceptor(int maxPerRoute, Duration maxWait) {
+        this.maxPerRoute = maxPerRoute;
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String route = request.getURI().getScheme() + "://" + request.getURI().getHost() + ":" + request.getURI().getPort();
+        Semaphore permits = routes.computeIfAbsent(route, key -> new Semaphore(maxPerRoute));
+        Duration wait = ExchangeDeadline.cap(maxWait);
+        try {
+            if (!permits.tryAcquire(wait.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new UpstreamOverloadedException("No connection to " + route + " became free within " + wait.toMillis() + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + route, e);
+        }
+        try {
+            return new PermitReleasingResponse(execution.execute(request, body), permits);
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private static final class PermitReleasingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PermitReleasingResponse(ClientHttpResponse delegate, Semaphore permits) {
+            this.delegate = delegate;
+            this.permits = permits;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.sendify.server.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * Threads for the {@code @Scheduled} jobs (captcha refresh and stock refill, history compaction), sized by
+     * spring.task.scheduling.pool.size. Without it the jobs would run on the watchScheduler thread, and a captcha
+     * solve in a refill round would hold up every shipment watch and the other jobs.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
@@ -1,26 +1,144 @@
 package com.sendify.server.controller;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sendify.server.dto.internal.BatchItemResult;
+import com.sendify.server.dto.internal.BatchTrackingRequest;
 import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.dto.internal.ShipmentHistoryRecord;
+import com.sendify.server.dto.internal.ShipmentSearchResult;
+import com.sendify.server.dto.internal.TripDto;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import com.sendify.server.client.DbSchenkerClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.service.ShipmentTrackingService;
+import com.sendify.server.service.ShipmentWatchService;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 @RestController
-@RequestMapping("/api/v1/shipments")
+@RequestMapping("/api/v1")
 @RequiredArgsConstructor
+@Slf4j
 public class ShipmentController {
 
-    private final DbSchenkerClient dbSchenkerClient;
+    static final String TIMEOUT_HEADER = "X-Timeout-Ms";
+
+    @Value("${dbschenker.batch.timeout:10m}")
+    private Duration batchTimeout;
 
-    @GetMapping("/{id}")
-    public ResponseEntity<ShipmentDetailsDto> getShipment(@PathVariable String id) {
-        ShipmentDetailsDto details = dbSchenkerClient.trackShipment(id);
+    private final ShipmentTrackingService shipmentTrackingService;
+    private final ShipmentWatchService shipmentWatchService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The optional {@code X-Timeout-Ms} header sets the latency budget of the lookup; a lookup that cannot
+     * finish within it answers 504 instead of continuing to retry. A header that is not positive answers 400.
+     */
+    @GetMapping("/shipments/{id}")
+    public ResponseEntity<ShipmentDetailsDto> getShipment(@PathVariable String id,
+                                                          @RequestHeader(name = TIMEOUT_HEADER, required = false) Long timeoutMs) {
+        ShipmentDetailsDto details = shipmentTrackingService.trackShipment(id, timeoutMs != null ? Duration.ofMillis(timeoutMs) : null);
         return ResponseEntity.ok(details);
     }
-}
\ No newline at end of file
+
+    /**
+     * Every tracking event recorded for a shipment, including events the upstream no longer reports.
+     * Served from the local history store only.
+     */
+    @GetMapping("/shipments/{id}/history")
+    public ResponseEntity<ShipmentDetailsDto> getShipmentHistory(@PathVariable String id) {
+        ShipmentDetailsDto history = shipmentTrackingService.shipmentHistory(id);
+        return history != null ? ResponseEntity.ok(history) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Recorded events of all shipments dated within {@code [from, to)}, ordered by date.
+     * Served from the local history store only.
+     */
+    @GetMapping("/shipments:history")
+    public ResponseEntity<List<ShipmentHistoryRecord>> getHistoryEvents(@RequestParam(required = false) String from,
+                                                                        @RequestParam(required = false) String to) {
+        return ResponseEntity.ok(shipmentTrackingService.historyEvents(from, to));
+    }
+
+    /**
+     * Every shipment found for a reference with its summary. Full details are included for the STT numbers
+     * listed in {@code details}, or for all matches with {@code details=all}.
+     */
+    @GetMapping("/shipments/{id}/search")
+    public ResponseEntity<ShipmentSearchResult> searchShipments(@PathVariable String id,
+                                                                @RequestParam(required = false) List<String> details) {
+        return ResponseEntity.ok(shipmentTrackingService.searchShipments(id, details));
+    }
+
+    /**
+     * Geo positions of a shipment. Pass the number of points already known as {@code fromIndex}
+     * to receive only the new ones.
+     */
+    @GetMapping("/shipments/{id}/trip")
+    public ResponseEntity<TripDto> getTrip(@PathVariable String id, @RequestParam(defaultValue = "0") int fromIndex) {
+        return ResponseEntity.ok(shipmentTrackingService.trackTrip(id, fromIndex));
+    }
+
+    /**
+     * Subscribes to a shipment: a {@code snapshot} event with the full details, then {@code events}
+     * with only the new tracking events whenever the shipment moves.
+     */
+    @GetMapping(value = "/shipments/{id}/watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter watchShipment(@PathVariable String id) {
+        return shipmentWatchService.subscribe(id);
+    }
+
+    /**
+     * Tracks several references in one call.
+     * Results are streamed as newline-delimited JSON in completion order, one line per reference.
+     * Once the stream ends early (client gone, timeout or error) the batch stops taking new references.
+     */
+    @PostMapping("/shipments:batch")
+    public ResponseEntity<ResponseBodyEmitter> trackBatch(@RequestBody BatchTrackingRequest request) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeout.toMillis());
+        AtomicBoolean abandoned = new AtomicBoolean();
+        emitter.onTimeout(() -> abandoned.set(true));
+        emitter.onError(e -> abandoned.set(true));
+        emitter.onCompletion(() -> abandoned.set(true));
+        shipmentTrackingService.trackBatch(request.getReferenceNumbers(), item -> send(emitter, item, abandoned), abandoned::get)
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        emitter.completeWithError(e);
+                    } else {
+                        emitter.complete();
+                    }
+                });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(emitter);
+    }
+
+    private void send(ResponseBodyEmitter emitter, BatchItemResult item, AtomicBoolean abandoned) {
+        try {
+            emitter.send(objectMapper.writeValueAsString(item) + "\n", MediaType.APPLICATION_NDJSON);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter timed out; items already looked up are still cached
+            log.debug("Could not stream batch item {}: {}", item.getReferenceNumber(), e.getMessage());
+            abandoned.set(true);
+        }
+    }
+}
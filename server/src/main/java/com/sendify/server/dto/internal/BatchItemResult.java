@@ -0,0 +1,21 @@
+package com.sendify.server.dto.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private String referenceNumber;
+    private Status status;
+    private ShipmentDetailsDto shipment;
+    private String error;
+
+    public enum Status {
+        OK,
+        ERROR
+    }
+}
@@ -0,0 +1,14 @@
+package com.sendify.server.dto.internal;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTrackingRequest {
+    private List<String> referenceNumbers;
+}
@@ -0,0 +1,58 @@
+package com.sendify.server.dto.internal;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Token-compact projection of {@link ShipmentDetailsDto} for LLM clients.
+ * Addresses are flattened, only a window of the latest events is kept and package events that repeat
+ * the shipment history are dropped. Packages with the same remaining events share one entry.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class CompactShipmentDto {
+    private Party sender;
+    private Party receiver;
+    private Integer pieces;
+    private String weight;
+    private List<Event> events;
+    /** Number of shipment events left out of {@code events} by the window. */
+    private Integer omittedEvents;
+    /** Packages with events of their own; packages that only follow the shipment history are not listed. */
+    private List<PackageEvents> packages;
+    private String fetchedAt;
+    private Boolean stale;
+
+    @Data
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class Party {
+        private String name;
+        private String city;
+        private String postCode;
+        private String countryCode;
+    }
+
+    @Data
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class Event {
+        private String code;
+        private String date;
+        private String location;
+        private String comment;
+    }
+
+    @Data
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public static class PackageEvents {
+        private List<String> packageIds;
+        private List<Event> events;
+    }
+}
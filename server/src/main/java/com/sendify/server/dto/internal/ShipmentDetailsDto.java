@@ -2,20 +2,34 @@ package com.sendify.server.dto.internal;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
+/**
+ * Shipment details as served to clients. Also read back from the shipment history log, hence {@code @Jacksonized}.
+ */
 @Data
-@Builder
+@Builder(toBuilder = true)
+@Jacksonized
 public class ShipmentDetailsDto {
     private Party sender;
     private Party receiver;
     private PackageDetails packageDetails;
     private List<TrackingEvent> trackingHistory;
     private List<PackageTracking> packageTracking;
+    /** When the details were fetched from the upstream, as an ISO-8601 instant. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String fetchedAt;
+    /** True when served from an expired cache entry because the upstream could not be asked in time. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stale;
 
     @Data
     @Builder
+    @Jacksonized
     public static class Party {
         private String name;
         private Address address;
@@ -23,6 +37,7 @@ public class ShipmentDetailsDto {
 
     @Data
     @Builder
+    @Jacksonized
     public static class Address {
         private String countryCode;
         private String country;
@@ -32,6 +47,7 @@ public class ShipmentDetailsDto {
 
     @Data
     @Builder
+    @Jacksonized
     public static class PackageDetails {
         private int pieceCount;
         private double weight;
@@ -41,6 +57,7 @@ public class ShipmentDetailsDto {
 
     @Data
     @Builder
+    @Jacksonized
     public static class Dimension {
         private Double length;
         private Double width;
@@ -50,6 +67,7 @@ public class ShipmentDetailsDto {
 
     @Data
     @Builder
+    @Jacksonized
     public static class TrackingEvent {
         private String code;
         private String date;
@@ -59,6 +77,7 @@ public class ShipmentDetailsDto {
 
     @Data
     @Builder
+    @Jacksonized
     public static class PackageTracking {
         private String packageId;
         private List<TrackingEvent> events;
@@ -0,0 +1,26 @@
+package com.sendify.server.dto.internal;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Tracking events that appeared since the previous update pushed to a watcher.
+ * Only packages with new events are listed.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class ShipmentEventDelta {
+    private String referenceNumber;
+    private List<ShipmentDetailsDto.TrackingEvent> trackingHistory;
+    private List<ShipmentDetailsDto.PackageTracking> packageTracking;
+    private boolean delivered;
+
+    public boolean hasEvents() {
+        return !trackingHistory.isEmpty() || !packageTracking.isEmpty();
+    }
+}
@@ -0,0 +1,25 @@
+package com.sendify.server.dto.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * One line of the shipment history log: a snapshot of the parties and package details of a shipment,
+ * or one tracking event of the shipment or, with {@code packageId} set, of one of its packages.
+ * History queries by date return the event records.
+ */
+@Data
+@Builder
+@Jacksonized
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ShipmentHistoryRecord {
+    private String referenceNumber;
+    private String packageId;
+    private ShipmentDetailsDto shipment;
+    private ShipmentDetailsDto.TrackingEvent event;
+    /** The {@code fetchedAt} of the details the record was first seen in. */
+    private String recordedAt;
+}
@@ -0,0 +1,38 @@
+package com.sendify.server.dto.internal;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * All shipments found for a reference, e.g. several STTs or transport modes behind one consignment number.
+ * Summary fields come from the single search request; {@code shipment} is only filled for the matches
+ * selected by the caller.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ShipmentSearchResult {
+    private String referenceNumber;
+    private List<Match> matches;
+
+    @Data
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Match {
+        private String stt;
+        private String transportMode;
+        private Integer percentageProgress;
+        private String lastEventCode;
+        private String fromLocation;
+        private String toLocation;
+        private String startDate;
+        private String endDate;
+        private ShipmentDetailsDto shipment;
+        /** Why the selected details could not be fetched. */
+        private String error;
+    }
+}
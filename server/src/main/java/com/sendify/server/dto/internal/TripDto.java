@@ -0,0 +1,39 @@
+package com.sendify.server.dto.internal;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Geo positions of a shipment along its route, oldest first.
+ * Clients that already hold the first {@code n} points of a revision pass {@code fromIndex=n} and
+ * receive only the points added since. A different {@code revision} means the known points changed
+ * and the trip has to be reloaded from index 0.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TripDto {
+    private String referenceNumber;
+    private String start;
+    private String end;
+    private int revision;
+    /** Index of the first entry of {@code points} in the whole trip. */
+    private int fromIndex;
+    private int totalPoints;
+    private List<TripPoint> points;
+    private String fetchedAt;
+
+    @Data
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class TripPoint {
+        private double latitude;
+        private double longitude;
+        private String lastEventCode;
+        private String lastEventDate;
+    }
+}
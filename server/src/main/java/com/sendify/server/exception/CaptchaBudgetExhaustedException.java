@@ -0,0 +1,8 @@
+package com.sendify.server.exception;
+
+/**
+ * The captcha budget of the calling context (e.g. a batch) is used up. Says nothing about the upstream.
+ */
+public class CaptchaBudgetExhaustedException extends CaptchaRequiredException {
+    public CaptchaBudgetExhaustedException(String message, Throwable cause) { super(message, cause); }
+}
@@ -0,0 +1,8 @@
+package com.sendify.server.exception;
+
+/**
+ * The latency budget of a lookup ran out before the upstream answered. Not counted as an upstream failure.
+ */
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message) { super(message); }
+}
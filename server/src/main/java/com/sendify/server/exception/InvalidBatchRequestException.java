@@ -0,0 +1,5 @@
+package com.sendify.server.exception;
+
+public class InvalidBatchRequestException extends RuntimeException {
+    public InvalidBatchRequestException(String message) { super(message); }
+}
@@ -0,0 +1,5 @@
+package com.sendify.server.exception;
+
+public class InvalidHistoryQueryException extends RuntimeException {
+    public InvalidHistoryQueryException(String message) { super(message); }
+}
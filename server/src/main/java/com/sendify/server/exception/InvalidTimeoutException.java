@@ -0,0 +1,5 @@
+package com.sendify.server.exception;
+
+public class InvalidTimeoutException extends RuntimeException {
+    public InvalidTimeoutException(String message) { super(message); }
+}
@@ -14,12 +14,48 @@ public class RestExceptionHandler {
         return e.getMessage();
     }
 
+    @ExceptionHandler(InvalidBatchRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidBatchRequest(InvalidBatchRequestException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(InvalidTimeoutException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidTimeout(InvalidTimeoutException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(InvalidHistoryQueryException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidHistoryQuery(InvalidHistoryQueryException e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler(CaptchaRequiredException.class)
     @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
     public String handleCaptchaRequired(CaptchaRequiredException e) {
         return e.getMessage();
     }
 
+    @ExceptionHandler(UpstreamOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleUpstreamOverloaded(UpstreamOverloadedException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleUpstreamUnavailable(UpstreamUnavailableException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public String handleDeadlineExceeded(DeadlineExceededException e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler(ShipmentTrackingException.class)
     @ResponseStatus(HttpStatus.BAD_GATEWAY)
     public String handleShipmentTracking(ShipmentTrackingException e) {
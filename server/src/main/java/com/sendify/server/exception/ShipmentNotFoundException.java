@@ -0,0 +1,8 @@
+package com.sendify.server.exception;
+
+/**
+ * The upstream answered, but knows no shipment for the reference. Not counted as an upstream failure.
+ */
+public class ShipmentNotFoundException extends ShipmentTrackingException {
+    public ShipmentNotFoundException(String message) { super(message); }
+}
@@ -0,0 +1,5 @@
+package com.sendify.server.exception;
+
+public class UpstreamOverloadedException extends RuntimeException {
+    public UpstreamOverloadedException(String message) { super(message); }
+}
@@ -0,0 +1,5 @@
+package com.sendify.server.exception;
+
+public class UpstreamUnavailableException extends RuntimeException {
+    public UpstreamUnavailableException(String message) { super(message); }
+}
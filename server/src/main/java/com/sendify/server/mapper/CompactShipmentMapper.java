@@ -0,0 +1,115 @@
+package com.sendify.server.mapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import com.sendify.server.dto.internal.CompactShipmentDto;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.util.EventTimestamps;
+
+/**
+ * Projects {@link ShipmentDetailsDto} onto {@link CompactShipmentDto}.
+ *
+ * A package event is a duplicate when the shipment history has an event with the same code, date and location.
+ * The event window keeps events dated at or after {@code since}, then the latest {@code maxEvents} of those;
+ * events whose date cannot be parsed are always kept by {@code since}. Both bounds are optional.
+ */
+@Component
+public class CompactShipmentMapper {
+
+    public CompactShipmentDto map(ShipmentDetailsDto details, Integer maxEvents, Instant since) {
+        List<ShipmentDetailsDto.TrackingEvent> history = nullToEmpty(details.getTrackingHistory());
+        List<CompactShipmentDto.Event> events = window(history, maxEvents, since);
+
+        Set<EventKey> historyKeys = new HashSet<>();
+        for (ShipmentDetailsDto.TrackingEvent event : history) {
+            historyKeys.add(EventKey.of(event));
+        }
+        Map<List<CompactShipmentDto.Event>, List<String>> packagesByEvents = new LinkedHashMap<>();
+        for (ShipmentDetailsDto.PackageTracking pkg : nullToEmpty(details.getPackageTracking())) {
+            List<ShipmentDetailsDto.TrackingEvent> own = nullToEmpty(pkg.getEvents()).stream()
+                    .filter(event -> !historyKeys.contains(EventKey.of(event)))
+                    .toList();
+            List<CompactShipmentDto.Event> ownEvents = window(own, maxEvents, since);
+            if (!ownEvents.isEmpty()) {
+                packagesByEvents.computeIfAbsent(ownEvents, key -> new ArrayList<>()).add(pkg.getPackageId());
+            }
+        }
+
+        ShipmentDetailsDto.PackageDetails packageDetails = details.getPackageDetails();
+        return CompactShipmentDto.builder()
+                .sender(party(details.getSender()))
+                .receiver(party(details.getReceiver()))
+                .pieces(packageDetails != null ? packageDetails.getPieceCount() : null)
+                .weight(packageDetails != null ? weight(packageDetails) : null)
+                .events(events)
+                .omittedEvents(history.size() > events.size() ? history.size() - events.size() : null)
+                .packages(packagesByEvents.entrySet().stream()
+                        .map(entry -> CompactShipmentDto.PackageEvents.builder()
+                                .packageIds(entry.getValue())
+                                .events(entry.getKey())
+                                .build())
+                        .toList())
+                .fetchedAt(details.getFetchedAt())
+                .stale(details.getStale())
+                .build();
+    }
+
+    private static List<CompactShipmentDto.Event> window(List<ShipmentDetailsDto.TrackingEvent> events, Integer maxEvents, Instant since) {
+        List<ShipmentDetailsDto.TrackingEvent> selected = events;
+        if (since != null) {
+            selected = selected.stream()
+                    .filter(event -> {
+                        Instant date = EventTimestamps.parse(event.getDate());
+                        return date == null || !date.isBefore(since);
+                    })
+                    .toList();
+        }
+        if (maxEvents != null && selected.size() > maxEvents) {
+            selected = selected.subList(selected.size() - Math.max(maxEvents, 0), selected.size());
+        }
+        return selected.stream()
+                .map(event -> CompactShipmentDto.Event.builder()
+                        .code(event.getCode())
+                        .date(event.getDate())
+                        .location(event.getLocation())
+                        .comment(event.getComment())
+                        .build())
+                .toList();
+    }
+
+    private static CompactShipmentDto.Party party(ShipmentDetailsDto.Party party) {
+        if (party == null) {
+            return null;
+        }
+        CompactShipmentDto.Party.PartyBuilder builder = CompactShipmentDto.Party.builder().name(party.getName());
+        if (party.getAddress() != null) {
+            builder.city(party.getAddress().getCity())
+                    .postCode(party.getAddress().getPostCode())
+                    .countryCode(party.getAddress().getCountryCode());
+        }
+        return builder.build();
+    }
+
+    private static String weight(ShipmentDetailsDto.PackageDetails packageDetails) {
+        String unit = packageDetails.getWeightUnit();
+        return unit != null ? packageDetails.getWeight() + " " + unit : String.valueOf(packageDetails.getWeight());
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+
+    private record EventKey(String code, String date, String location) {
+        static EventKey of(ShipmentDetailsDto.TrackingEvent event) {
+            return new EventKey(event.getCode(), event.getDate(), event.getLocation());
+        }
+    }
+}
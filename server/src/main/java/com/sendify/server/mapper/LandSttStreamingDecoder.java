@@ -0,0 +1,375 @@
+package com.sendify.server.mapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sendify.server.cache.TripTrack;
+import com.sendify.server.dto.external.LandSttResponse;
+import com.sendify.server.dto.external.ShipmentResponse;
+
+/**
+ * Decodes upstream tracking responses straight from a {@link JsonParser}, without building a String body
+ * or a {@code JsonNode} tree first.
+ *
+ * Only the fields read by {@link LandSttResponseMapper} are materialized. Everything else, e.g.
+ * {@code progressBar}, event {@code reasons} or {@code volume}, is skipped token by token.
+ * The input is always consumed to the end so the connection can be reused.
+ */
+@Component
+public class LandSttStreamingDecoder {
+
+    /**
+     * Returns {@code result[0].id} of a search response, or null if the result list is empty.
+     */
+    public String readFirstResultId(JsonParser parser) throws IOException {
+        String id = null;
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("result".equals(field) && value == JsonToken.START_ARRAY) {
+                boolean first = true;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                        id = readId(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    first = false;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Reads every entry of a search response with its summary fields; {@code warnings} and unknown fields are skipped.
+     */
+    public ShipmentResponse readSearch(JsonParser parser) throws IOException {
+        List<ShipmentResponse.ShipmentResult> results = new ArrayList<>();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return ShipmentResponse.builder().results(results).build();
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("result".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() == JsonToken.START_OBJECT) {
+                        results.add(readSearchResult(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return ShipmentResponse.builder().results(results).build();
+    }
+
+    /**
+     * Reads a {@code /land/{sttId}} response into a {@link LandSttResponse} populated with the mapped fields only.
+     */
+    public LandSttResponse readLandStt(JsonParser parser) throws IOException {
+        LandSttResponse response = new LandSttResponse();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return response;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "references" -> response.setReferences(value == JsonToken.START_OBJECT ? readReferences(parser) : null);
+                case "goods" -> response.setGoods(value == JsonToken.START_OBJECT ? readGoods(parser) : null);
+                case "location" -> response.setLocation(value == JsonToken.START_OBJECT ? readLocation(parser) : null);
+                case "events" -> response.setEvents(value == JsonToken.START_ARRAY ? readEvents(parser) : null);
+                case "packages" -> response.setPackages(value == JsonToken.START_ARRAY ? readPackages(parser) : null);
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+        return response;
+    }
+
+    /**
+     * Reads a {@code /land/{sttId}/trip} response (see {@link com.sendify.server.dto.external.TripResponse}) on top
+     * of the known trip. Coordinates are read as primitives, points equal to the known prefix are only compared,
+     * and points without coordinates are skipped.
+     */
+    public TripTrack readTrip(JsonParser parser, TripTrack known, String fetchedAt) throws IOException {
+        TripTrack.Builder points = known.extend();
+        String start = null;
+        String end = null;
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return points.build(null, null, fetchedAt);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "start" -> start = parser.getValueAsString();
+                case "end" -> end = parser.getValueAsString();
+                case "trip" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        readTripPoints(parser, points);
+                    }
+                }
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+        return points.build(start, end, fetchedAt);
+    }
+
+    private void readTripPoints(JsonParser parser, TripTrack.Builder points) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            double latitude = Double.NaN;
+            double longitude = Double.NaN;
+            String eventCode = null;
+            String eventDate = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "latitude" -> latitude = value.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                    case "longitude" -> longitude = value.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                    case "lastEventCode" -> eventCode = parser.getValueAsString();
+                    case "lastEventDate" -> eventDate = parser.getValueAsString();
+                    default -> { }
+                }
+                parser.skipChildren();
+            }
+            if (!Double.isNaN(latitude) && !Double.isNaN(longitude)) {
+                points.add(latitude, longitude, eventCode, eventDate);
+            }
+        }
+    }
+
+    private ShipmentResponse.ShipmentResult readSearchResult(JsonParser parser) throws IOException {
+        ShipmentResponse.ShipmentResult result = new ShipmentResponse.ShipmentResult();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> result.setId(parser.getValueAsString());
+                case "stt" -> result.setStt(parser.getValueAsString());
+                case "transportMode" -> result.setTransportMode(parser.getValueAsString());
+                case "percentageProgress" -> result.setPercentageProgress(value.isNumeric() ? Integer.valueOf(parser.getIntValue()) : null);
+                case "lastEventCode" -> result.setLastEventCode(parser.getValueAsString());
+                case "fromLocation" -> result.setFromLocation(parser.getValueAsString());
+                case "toLocation" -> result.setToLocation(parser.getValueAsString());
+                case "startDate" -> result.setStartDate(parser.getValueAsString());
+                case "endDate" -> result.setEndDate(parser.getValueAsString());
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+        return result;
+    }
+
+    private String readId(JsonParser parser) throws IOException {
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("id".equals(field)) {
+                id = parser.getValueAsString();
+            }
+            parser.skipChildren();
+        }
+        return id;
+    }
+
+    private LandSttResponse.References readReferences(JsonParser parser) throws IOException {
+        LandSttResponse.References references = new LandSttResponse.References();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "shipper" -> references.setShipper(value == JsonToken.START_ARRAY ? readStrings(parser) : null);
+                case "consignee" -> references.setConsignee(value == JsonToken.START_ARRAY ? readStrings(parser) : null);
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+        return references;
+    }
+
+    private LandSttResponse.Goods readGoods(JsonParser parser) throws IOException {
+        LandSttResponse.Goods goods = new LandSttResponse.Goods();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "pieces" -> goods.setPieces(value.isNumeric() ? Integer.valueOf(parser.getIntValue()) : null);
+                case "weight" -> goods.setWeight(value == JsonToken.START_OBJECT ? readMeasurement(parser) : null);
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+        return goods;
+    }
+
+    private LandSttResponse.Measurement readMeasurement(JsonParser parser) throws IOException {
+        LandSttResponse.Measurement measurement = new LandSttResponse.Measurement();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "value" -> measurement.setValue(value.isNumeric() ? Double.valueOf(parser.getDoubleValue()) : null);
+                case "unit" -> measurement.setUnit(parser.getValueAsString());
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+        return measurement;
+    }
+
+    private LandSttResponse.NetworkLocation readLocation(JsonParser parser) throws IOException {
+        LandSttResponse.NetworkLocation location = new LandSttResponse.NetworkLocation();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "shipperPlace" -> location.setShipperPlace(value == JsonToken.START_OBJECT ? readAddress(parser) : null);
+                case "consigneePlace" -> location.setConsigneePlace(value == JsonToken.START_OBJECT ? readAddress(parser) : null);
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+        return location;
+    }
+
+    private LandSttResponse.Address readAddress(JsonParser parser) throws IOException {
+        LandSttResponse.Address address = new LandSttResponse.Address();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "country" -> address.setCountry(parser.getValueAsString());
+                case "countryCode" -> address.setCountryCode(parser.getValueAsString());
+                case "city" -> address.setCity(parser.getValueAsString());
+                case "postCode" -> address.setPostCode(parser.getValueAsString());
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+        return address;
+    }
+
+    private List<LandSttResponse.TrackingEvent> readEvents(JsonParser parser) throws IOException {
+        List<LandSttResponse.TrackingEvent> events = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                events.add(null);
+                continue;
+            }
+            LandSttResponse.TrackingEvent event = new LandSttResponse.TrackingEvent();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "code" -> event.setCode(parser.getValueAsString());
+                    case "date" -> event.setDate(parser.getValueAsString());
+                    case "comment" -> event.setComment(parser.getValueAsString());
+                    case "location" -> event.setLocation(value == JsonToken.START_OBJECT ? readEventLocation(parser) : null);
+                    default -> { }
+                }
+                parser.skipChildren();
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private LandSttResponse.EventLocation readEventLocation(JsonParser parser) throws IOException {
+        LandSttResponse.EventLocation location = new LandSttResponse.EventLocation();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("name".equals(field)) {
+                location.setName(parser.getValueAsString());
+            }
+            parser.skipChildren();
+        }
+        return location;
+    }
+
+    private List<LandSttResponse.PackageItem> readPackages(JsonParser parser) throws IOException {
+        List<LandSttResponse.PackageItem> packages = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                packages.add(null);
+                continue;
+            }
+            LandSttResponse.PackageItem item = new LandSttResponse.PackageItem();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id" -> item.setId(parser.getValueAsString());
+                    case "events" -> item.setEvents(value == JsonToken.START_ARRAY ? readPackageEvents(parser) : null);
+                    default -> { }
+                }
+                parser.skipChildren();
+            }
+            packages.add(item);
+        }
+        return packages;
+    }
+
+    private List<LandSttResponse.PackageEvent> readPackageEvents(JsonParser parser) throws IOException {
+        List<LandSttResponse.PackageEvent> events = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                events.add(null);
+                continue;
+            }
+            LandSttResponse.PackageEvent event = new LandSttResponse.PackageEvent();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "code" -> event.setCode(parser.getValueAsString());
+                    case "date" -> event.setDate(parser.getValueAsString());
+                    case "location" -> event.setLocation(parser.getValueAsString());
+                    case "comment" -> event.setComment(parser.getValueAsString());
+                    default -> { }
+                }
+                parser.skipChildren();
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private List<String> readStrings(JsonParser parser) throws IOException {
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.getValueAsString());
+            parser.skipChildren();
+        }
+        return values;
+    }
+}
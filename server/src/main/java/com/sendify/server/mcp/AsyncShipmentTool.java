@@ -0,0 +1,41 @@
+package com.sendify.server.mcp;
+
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springaicommunity.mcp.annotation.McpToolParam;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.metrics.TrackingMetrics;
+import com.sendify.server.service.ShipmentTrackingService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking db_schenker_tracker for {@code spring.ai.mcp.server.type=ASYNC}.
+ * Replaces the blocking method of {@link ShipmentTool}, which is left out of the tool callbacks in that mode,
+ * with the same parameters.
+ */
+@Service
+@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "ASYNC")
+public class AsyncShipmentTool {
+    private final ShipmentTrackingService shipmentTrackingService;
+    private final TrackingMetrics metrics;
+
+    public AsyncShipmentTool(ShipmentTrackingService shipmentTrackingService, TrackingMetrics metrics) {
+        this.shipmentTrackingService = shipmentTrackingService;
+        this.metrics = metrics;
+    }
+
+    @McpTool(
+            name = ShipmentTool.TRACKER_NAME,
+            description = ShipmentTool.TRACKER_DESCRIPTION
+    )
+    public Mono<ShipmentDetailsDto> trackShipment(
+            @McpToolParam(description = ShipmentTool.REFERENCE_DESCRIPTION) String referenceNumber,
+            @McpToolParam(description = ShipmentTool.TIMEOUT_DESCRIPTION, required = false) Integer timeoutMs
+    ) {
+        return metrics.timeToolAsync(ShipmentTool.TRACKER_NAME,
+                () -> shipmentTrackingService.trackShipmentAsync(referenceNumber, ShipmentTool.budget(timeoutMs)));
+    }
+}
@@ -1,30 +1,127 @@
 package com.sendify.server.mcp;
 
-import com.sendify.server.client.DbSchenkerClient;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.sendify.server.dto.internal.BatchItemResult;
+import com.sendify.server.dto.internal.CompactShipmentDto;
 import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.dto.internal.ShipmentSearchResult;
+import com.sendify.server.dto.internal.TripDto;
+import com.sendify.server.mapper.CompactShipmentMapper;
+import com.sendify.server.metrics.TrackingMetrics;
+import com.sendify.server.service.ShipmentTrackingService;
+import com.sendify.server.util.EventTimestamps;
 import org.springframework.stereotype.Service;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 
 @Service
 public class ShipmentTool {
-    private final DbSchenkerClient dbSchenkerClient;
 
-    public ShipmentTool(DbSchenkerClient dbSchenkerClient) {
-        this.dbSchenkerClient = dbSchenkerClient;
+    public static final String TRACKER_NAME = "db_schenker_tracker";
+    static final String TRACKER_DESCRIPTION = """
+            Tracks a shipment using DB Schenker reference number.
+            Returns sender information, receiver information, package details, complete tracking history for the shipment, and individual tracking events per package.
+            """;
+    static final String REFERENCE_DESCRIPTION = "The shipment reference number (e.g., 1806203236)";
+    static final String TIMEOUT_DESCRIPTION = "Give up after this many milliseconds, must be positive (default 30000)";
+    static final int DEFAULT_COMPACT_EVENTS = 10;
+
+    private final ShipmentTrackingService shipmentTrackingService;
+    private final CompactShipmentMapper compactShipmentMapper;
+    private final TrackingMetrics metrics;
+
+    public ShipmentTool(ShipmentTrackingService shipmentTrackingService, CompactShipmentMapper compactShipmentMapper,
+                        TrackingMetrics metrics) {
+        this.shipmentTrackingService = shipmentTrackingService;
+        this.compactShipmentMapper = compactShipmentMapper;
+        this.metrics = metrics;
     }
 
 
     @Tool(
-            name = "db_schenker_tracker",
+            name = TRACKER_NAME,
+            description = TRACKER_DESCRIPTION
+    )
+    public ShipmentDetailsDto trackShipment(
+            @ToolParam(description = REFERENCE_DESCRIPTION) String referenceNumber,
+            @ToolParam(description = TIMEOUT_DESCRIPTION, required = false) Integer timeoutMs
+    ) {
+        return metrics.timeTool(TRACKER_NAME, () -> shipmentTrackingService.trackShipment(referenceNumber, budget(timeoutMs)));
+    }
+
+    @Tool(
+            name = "db_schenker_tracker_compact",
             description = """
-                    Tracks a shipment using DB Schenker reference number.
-                    Returns sender information, receiver information, package details, complete tracking history for the shipment, and individual tracking events per package.
+                    Tracks a shipment using DB Schenker reference number and returns a compact summary.
+                    Returns sender, receiver, piece count, weight and the latest shipment events. Package events are only listed where they differ from the shipment events; packages with the same events are grouped.
+                    Prefer this over db_schenker_tracker unless the complete history of every package is needed.
                     """
     )
-    public ShipmentDetailsDto trackShipment(
-            @ToolParam(description = "The shipment reference number (e.g., 1806203236)") String referenceNumber
+    public CompactShipmentDto trackShipmentCompact(
+            @ToolParam(description = REFERENCE_DESCRIPTION) String referenceNumber,
+            @ToolParam(description = "Return at most this many of the latest events (default 10 unless since is given)", required = false) Integer maxEvents,
+            @ToolParam(description = "Only return events at or after this ISO-8601 date or date-time (e.g., 2025-11-03T08:00:00+01:00)", required = false) String since,
+            @ToolParam(description = TIMEOUT_DESCRIPTION, required = false) Integer timeoutMs
+    ) {
+        Instant sinceInstant = since == null || since.isBlank() ? null : EventTimestamps.parseBound(since);
+        Integer eventLimit = maxEvents == null && sinceInstant == null ? DEFAULT_COMPACT_EVENTS : maxEvents;
+        return metrics.timeTool("db_schenker_tracker_compact", () -> compactShipmentMapper.map(
+                shipmentTrackingService.trackShipment(referenceNumber, budget(timeoutMs)), eventLimit, sinceInstant));
+    }
+
+    @Tool(
+            name = "db_schenker_search",
+            description = """
+                    Lists every shipment found for a DB Schenker reference number, e.g. several STT numbers or transport modes behind one consignment.
+                    Returns a summary per match (STT number, transport mode, progress in percent, last event code, from and to location, dates).
+                    Full shipment details are only added for the STT numbers passed in details, or for every match with ["all"].
+                    """
+    )
+    public ShipmentSearchResult searchShipments(
+            @ToolParam(description = REFERENCE_DESCRIPTION) String referenceNumber,
+            @ToolParam(description = "STT numbers of the matches to include full details for, or [\"all\"]", required = false) List<String> details
     ) {
-        return dbSchenkerClient.trackShipment(referenceNumber);
+        return metrics.timeTool("db_schenker_search", () -> shipmentTrackingService.searchShipments(referenceNumber, details));
+    }
+
+    @Tool(
+            name = "db_schenker_trip",
+            description = """
+                    Returns the geo positions (latitude, longitude and last event) of a shipment along its route, oldest first, using DB Schenker reference number.
+                    To poll for new positions, pass the totalPoints of the previous answer as fromIndex; if the revision changed, reload from 0.
+                    """
+    )
+    public TripDto trackTrip(
+            @ToolParam(description = REFERENCE_DESCRIPTION) String referenceNumber,
+            @ToolParam(description = "Index of the first point to return (default 0)", required = false) Integer fromIndex
+    ) {
+        return metrics.timeTool("db_schenker_trip",
+                () -> shipmentTrackingService.trackTrip(referenceNumber, fromIndex != null ? fromIndex : 0));
+    }
+
+    @Tool(
+            name = "db_schenker_tracker_batch",
+            description = """
+                    Tracks several shipments at once using DB Schenker reference numbers.
+                    Returns one result per reference with status OK and the shipment details, or status ERROR and an error message.
+                    Prefer this over calling db_schenker_tracker repeatedly.
+                    """
+    )
+    public List<BatchItemResult> trackShipments(
+            @ToolParam(description = "The shipment reference numbers (e.g., [\"1806203236\", \"1806290829\"])") List<String> referenceNumbers
+    ) {
+        return metrics.timeTool("db_schenker_tracker_batch", () -> {
+            ConcurrentLinkedQueue<BatchItemResult> results = new ConcurrentLinkedQueue<>();
+            shipmentTrackingService.trackBatch(referenceNumbers, results::add).join();
+            return List.copyOf(results);
+        });
+    }
+
+    static Duration budget(Integer timeoutMs) {
+        return timeoutMs != null ? Duration.ofMillis(timeoutMs) : null;
     }
 }
@@ -0,0 +1,201 @@
+package com.sendify.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * Meters for the tracking pipeline. All names start with {@code dbschenker.} (or {@code mcp.} for tool calls),
+ * so percentile histograms can be switched on for the whole group with
+ * {@code management.metrics.distribution.percentiles-histogram.dbschenker=true}.
+ *
+ * REST endpoint latency is not recorded here, Spring Boot already publishes it as {@code http.server.requests}.
+ */
+@Component
+@RequiredArgsConstructor
+public class TrackingMetrics {
+
+    public static final String QUERY_STT = "stt";
+    public static final String QUERY_LAND = "land";
+    public static final String QUERY_TRIP = "trip";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_THROTTLED = "throttled";
+    public static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry registry;
+
+    /**
+     * One upstream HTTP attempt, including the streaming decode of its body.
+     */
+    public void recordUpstreamRequest(String query, String outcome, long nanos) {
+        Timer.builder("dbschenker.upstream.requests")
+                .description("Upstream tracking API requests")
+                .tag("query", query)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Upstream answered 429, i.e. a captcha is required or the token was rejected.
+     */
+    public void recordThrottled(String query) {
+        Counter.builder("dbschenker.upstream.throttled")
+                .description("Upstream 429 responses")
+                .tag("query", query)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Number of captcha retries a successful query needed.
+     */
+    public void recordRetries(String query, int retries) {
+        DistributionSummary.builder("dbschenker.upstream.retries")
+                .description("Captcha retries per successful upstream query")
+                .tag("query", query)
+                .register(registry)
+                .record(retries);
+    }
+
+    /**
+     * A full captcha challenge (all puzzles of one 429) was solved.
+     */
+    public void recordCaptchaChallenge(int puzzles, long nanos) {
+        Timer.builder("dbschenker.captcha.challenges")
+                .description("Time to solve all puzzles of a captcha challenge")
+                .tag("puzzles", String.valueOf(puzzles))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A single proof-of-work puzzle was searched, tagged with its difficulty bytes.
+     */
+    public void recordPuzzle(int t13, int t14, long noncesTried, long nanos) {
+        String exponent = String.valueOf(t13);
+        String multiplier = String.valueOf(t14);
+        Timer.builder("dbschenker.captcha.puzzle.solve")
+                .description("Proof-of-work search time per puzzle")
+                .tag("t13", exponent)
+                .tag("t14", multiplier)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("dbschenker.captcha.puzzle.nonces")
+                .description("Nonces hashed per puzzle")
+                .tag("t13", exponent)
+                .tag("t14", multiplier)
+                .register(registry)
+                .record(noncesTried);
+    }
+
+    /**
+     * A hedged request was sent because the first one was slow; {@code winner} is the one that answered first.
+     */
+    public void recordHedge(String query, String winner) {
+        Counter.builder("dbschenker.upstream.hedged")
+                .description("Hedged upstream requests by the request that answered first")
+                .tag("query", query)
+                .tag("winner", winner)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * A lookup ran out of its latency budget.
+     */
+    public void recordDeadlineExceeded() {
+        Counter.builder("dbschenker.deadline.exceeded")
+                .description("Lookups that ran out of their latency budget")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * The upstream circuit breaker changed its state.
+     */
+    public void recordCircuitTransition(String state) {
+        Counter.builder("dbschenker.circuit.transitions")
+                .description("Upstream circuit breaker state changes")
+                .tag("state", state)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * An expired cached shipment was served instead of waiting for the upstream.
+     */
+    public void recordStaleResponse(String reason) {
+        Counter.builder("dbschenker.cache.stale")
+                .description("Stale shipments served from the cache")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Streaming decode of an upstream response body.
+     */
+    public void recordDecode(String query, long nanos) {
+        Timer.builder("dbschenker.decode")
+                .description("Decoding of upstream response bodies")
+                .tag("query", query)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Times the mapping of an upstream response to the internal DTO.
+     */
+    public <T> T timeMapping(Supplier<T> mapping) {
+        return Timer.builder("dbschenker.mapping")
+                .description("Mapping of upstream responses to internal DTOs")
+                .register(registry)
+                .record(mapping);
+    }
+
+    /**
+     * Times an MCP tool call, tagged with the tool name and whether it threw.
+     */
+    public <T> T timeTool(String tool, Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = OUTCOME_ERROR;
+        try {
+            T result = call.get();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } finally {
+            recordToolCall(tool, outcome, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Times an asynchronous MCP tool call from subscription until it completes or fails.
+     */
+    public <T> Mono<T> timeToolAsync(String tool, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.get()
+                    .doOnSuccess(result -> recordToolCall(tool, OUTCOME_SUCCESS, System.nanoTime() - start))
+                    .doOnError(e -> recordToolCall(tool, OUTCOME_ERROR, System.nanoTime() - start));
+        });
+    }
+
+    private void recordToolCall(String tool, String outcome, long nanos) {
+        Timer.builder("mcp.tool.calls")
+                .description("MCP tool call latency")
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,349 @@
+package com.sendify.server.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.sendify.server.cache.ShipmentCache;
+import com.sendify.server.cache.TripCache;
+import com.sendify.server.cache.TripTrack;
+import com.sendify.server.client.DbSchenkerClient;
+import com.sendify.server.client.ReactiveDbSchenkerClient;
+import com.sendify.server.client.TrackingContext;
+import com.sendify.server.client.UpstreamCircuitBreaker;
+import com.sendify.server.dto.internal.BatchItemResult;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.dto.internal.ShipmentHistoryRecord;
+import com.sendify.server.dto.internal.ShipmentSearchResult;
+import com.sendify.server.dto.internal.TripDto;
+import com.sendify.server.exception.DeadlineExceededException;
+import com.sendify.server.exception.InvalidBatchRequestException;
+import com.sendify.server.exception.InvalidHistoryQueryException;
+import com.sendify.server.exception.InvalidTimeoutException;
+import com.sendify.server.exception.TrackingReferenceMissingException;
+import com.sendify.server.metrics.TrackingMetrics;
+import com.sendify.server.store.ShipmentHistoryStore;
+import com.sendify.server.util.EventTimestamps;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Entry point for shipment lookups used by the REST controller and the MCP tools.
+ * Serves repeated lookups from {@link ShipmentCache} and only goes upstream on a miss.
+ * Expired entries are served as stale while they are refreshed in the background.
+ * Every fetched shipment is recorded in {@link ShipmentHistoryStore}, which answers history queries.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShipmentTrackingService {
+
+    /** Selects every match of a search for details. */
+    public static final String ALL_MATCHES = "all";
+
+    @Value("${dbschenker.batch.max-size:500}")
+    private int batchMaxSize;
+
+    @Value("${dbschenker.batch.max-concurrency:8}")
+    private int batchMaxConcurrency;
+
+    @Value("${dbschenker.batch.captcha-budget:20}")
+    private int batchCaptchaBudget;
+
+    @Value("${dbschenker.deadline.default-budget:30s}")
+    private Duration defaultBudget;
+
+    private final DbSchenkerClient dbSchenkerClient;
+    private final ReactiveDbSchenkerClient reactiveDbSchenkerClient;
+    private final ShipmentCache shipmentCache;
+    private final TripCache tripCache;
+    private final ShipmentHistoryStore historyStore;
+    private final ExecutorService upstreamExecutor;
+    private final UpstreamCircuitBreaker circuitBreaker;
+    private final TrackingMetrics metrics;
+
+    /** References with a background refresh in progress. */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    public ShipmentDetailsDto trackShipment(String referenceNumber) {
+        return trackShipment(referenceNumber, TrackingContext.unbounded());
+    }
+
+    /**
+     * Tracks a shipment within a latency budget, or the default budget if null. Once the budget is spent the
+     * lookup stops retrying and solving captchas and fails with a {@link DeadlineExceededException}.
+     * A budget that is not positive is rejected with an {@link InvalidTimeoutException}.
+     */
+    public ShipmentDetailsDto trackShipment(String referenceNumber, Duration budget) {
+        InvalidTimeoutException invalid = checkBudget(budget);
+        if (invalid != null) {
+            throw invalid;
+        }
+        return trackShipment(referenceNumber, TrackingContext.unbounded().withDeadline(budget != null ? budget : defaultBudget));
+    }
+
+    public ShipmentDetailsDto trackShipment(String referenceNumber, TrackingContext context) {
+        if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
+            throw new TrackingReferenceMissingException("Missing tracking reference");
+        }
+        String reference = referenceNumber.trim();
+
+        ShipmentDetailsDto cached = shipmentCache.get(reference);
+        if (cached != null) {
+            return cached;
+        }
+        ShipmentDetailsDto stale = serveStale(reference);
+        if (stale != null) {
+            return stale;
+        }
+        ShipmentDetailsDto details = dbSchenkerClient.trackShipment(reference, context);
+        remember(reference, details);
+        return details;
+    }
+
+    /**
+     * Lists every shipment found for a reference, from a single search request.
+     * Full details are fetched in parallel on the upstreamExecutor, only for the matches whose {@code stt}
+     * is listed in {@code detailsFor}; {@code all} selects every match.
+     */
+    public ShipmentSearchResult searchShipments(String referenceNumber, List<String> detailsFor) {
+        if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
+            throw new TrackingReferenceMissingException("Missing tracking reference");
+        }
+        String reference = referenceNumber.trim();
+        Set<String> selected = detailsFor == null ? Set.of() : detailsFor.stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .collect(Collectors.toSet());
+        boolean all = selected.contains(ALL_MATCHES);
+
+        List<CompletableFuture<ShipmentSearchResult.Match>> matches = dbSchenkerClient.search(reference).stream()
+                .map(result -> {
+                    ShipmentSearchResult.Match.MatchBuilder match = ShipmentSearchResult.Match.builder()
+                            .stt(result.getStt())
+                            .transportMode(result.getTransportMode())
+                            .percentageProgress(result.getPercentageProgress())
+                            .lastEventCode(result.getLastEventCode())
+                            .fromLocation(result.getFromLocation())
+                            .toLocation(result.getToLocation())
+                            .startDate(result.getStartDate())
+                            .endDate(result.getEndDate());
+                    if (result.getId() == null || !(all || selected.contains(result.getStt()))) {
+                        return CompletableFuture.completedFuture(match.build());
+                    }
+                    return CompletableFuture.supplyAsync(() -> match.shipment(dbSchenkerClient.trackSttId(result.getId())).build(), upstreamExecutor)
+                            .exceptionally(e -> {
+                                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                                log.debug("Details of {} for {} failed: {}", result.getStt(), reference, cause.getMessage());
+                                return match.error(cause.getMessage()).build();
+                            });
+                })
+                .toList();
+        return ShipmentSearchResult.builder()
+                .referenceNumber(reference)
+                .matches(matches.stream().map(CompletableFuture::join).toList())
+                .build();
+    }
+
+    /**
+     * Returns the trip points from {@code fromIndex} on. A cached trip is served until it expires; a refresh
+     * merges the upstream trip into the expired one, so only new points are stored and sent.
+     */
+    public TripDto trackTrip(String referenceNumber, int fromIndex) {
+        if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
+            throw new TrackingReferenceMissingException("Missing tracking reference");
+        }
+        String reference = referenceNumber.trim();
+
+        TripTrack track = tripCache.get(reference);
+        if (track == null) {
+            track = dbSchenkerClient.trackTrip(reference, tripCache.getKnown(reference));
+            tripCache.put(reference, track);
+        }
+        return track.toDto(reference, fromIndex);
+    }
+
+    /**
+     * Non-blocking variant of {@link #trackShipment(String, Duration)} for the async MCP server, with the same
+     * budget handling. Cache hits complete immediately, misses go upstream through {@link ReactiveDbSchenkerClient}.
+     */
+    public Mono<ShipmentDetailsDto> trackShipmentAsync(String referenceNumber, Duration budget) {
+        if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
+            return Mono.error(new TrackingReferenceMissingException("Missing tracking reference"));
+        }
+        InvalidTimeoutException invalid = checkBudget(budget);
+        if (invalid != null) {
+            return Mono.error(invalid);
+        }
+        String reference = referenceNumber.trim();
+
+        ShipmentDetailsDto cached = shipmentCache.get(reference);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        ShipmentDetailsDto stale = serveStale(reference);
+        if (stale != null) {
+            return Mono.just(stale);
+        }
+        return reactiveDbSchenkerClient.trackShipment(reference,
+                        TrackingContext.unbounded().withDeadline(budget != null ? budget : defaultBudget))
+                .doOnNext(details -> remember(reference, details));
+    }
+
+    /**
+     * The exception for a budget that is not positive, or null if the budget is valid or absent.
+     */
+    private static InvalidTimeoutException checkBudget(Duration budget) {
+        if (budget != null && (budget.isZero() || budget.isNegative())) {
+            return new InvalidTimeoutException("Timeout must be positive, got " + budget.toMillis() + " ms");
+        }
+        return null;
+    }
+
+    /**
+     * The recorded history of a shipment, served from the local store only. Null if it was never tracked.
+     */
+    public ShipmentDetailsDto shipmentHistory(String referenceNumber) {
+        if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
+            throw new TrackingReferenceMissingException("Missing tracking reference");
+        }
+        return historyStore.find(referenceNumber.trim());
+    }
+
+    /**
+     * Recorded events of all shipments dated within {@code [from, to)}, served from the local store only.
+     * Bounds are ISO-8601 dates or date-times and may be omitted.
+     */
+    public List<ShipmentHistoryRecord> historyEvents(String from, String to) {
+        try {
+            return historyStore.findEvents(from != null ? EventTimestamps.parseBound(from) : null,
+                    to != null ? EventTimestamps.parseBound(to) : null);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidHistoryQueryException(e.getMessage());
+        }
+    }
+
+    private void remember(String reference, ShipmentDetailsDto details) {
+        shipmentCache.put(reference, details);
+        historyStore.record(reference, details);
+    }
+
+    /**
+     * Stale-while-revalidate: if an expired entry is still known, it is returned marked as stale right away
+     * and the shipment is refreshed in the background, unless the upstream circuit is open.
+     * After a restart or an eviction the shipment history stands in for the expired entry; a delivered
+     * shipment no longer changes, so its history is cached and served as fresh without asking the upstream.
+     * Returns null when there is nothing to fall back on and the caller has to wait for the upstream.
+     */
+    private ShipmentDetailsDto serveStale(String reference) {
+        ShipmentDetailsDto last = shipmentCache.getStale(reference);
+        if (last == null) {
+            last = historyStore.find(reference);
+            if (last == null) {
+                return null;
+            }
+            if (shipmentCache.isDelivered(last)) {
+                shipmentCache.put(reference, last);
+                return last;
+            }
+        }
+        if (circuitBreaker.isOpen()) {
+            metrics.recordStaleResponse("circuit-open");
+        } else {
+            metrics.recordStaleResponse("revalidating");
+            refreshInBackground(reference);
+        }
+        return last.toBuilder().stale(true).build();
+    }
+
+    private void refreshInBackground(String reference) {
+        if (!refreshing.add(reference)) {
+            return;
+        }
+        try {
+            upstreamExecutor.execute(() -> {
+                try {
+                    remember(reference, dbSchenkerClient.trackShipment(reference));
+                } catch (RuntimeException e) {
+                    log.debug("Background refresh of {} failed: {}", reference, e.getMessage());
+                } finally {
+                    refreshing.remove(reference);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(reference);
+        }
+    }
+
+    /**
+     * Tracks many references with bounded concurrency and a captcha budget shared by the whole batch.
+     * Each result is handed to {@code onResult} as soon as it completes (from upstream worker threads,
+     * so the consumer must be thread-safe). A failed reference produces an ERROR item instead of failing the batch.
+     * The returned future completes once every reference has been reported.
+     */
+    public CompletableFuture<Void> trackBatch(List<String> referenceNumbers, Consumer<BatchItemResult> onResult) {
+        return trackBatch(referenceNumbers, onResult, () -> false);
+    }
+
+    /**
+     * Like {@link #trackBatch(List, Consumer)}, but the lanes stop taking new references once {@code cancelled}
+     * returns true, e.g. when the client has gone away, and free their upstreamExecutor threads. Lookups already
+     * running finish and are still cached. The returned future then completes without the remaining items.
+     */
+    public CompletableFuture<Void> trackBatch(List<String> referenceNumbers, Consumer<BatchItemResult> onResult,
+                                              BooleanSupplier cancelled) {
+        if (referenceNumbers == null || referenceNumbers.isEmpty()) {
+            throw new TrackingReferenceMissingException("Missing tracking references");
+        }
+        if (referenceNumbers.size() > batchMaxSize) {
+            throw new InvalidBatchRequestException("Batch exceeds the maximum of " + batchMaxSize + " references");
+        }
+        TrackingContext context = TrackingContext.withCaptchaBudget(batchCaptchaBudget);
+        AtomicInteger next = new AtomicInteger();
+
+        // Each lane processes references one by one until the list is exhausted
+        int lanes = Math.min(batchMaxConcurrency, referenceNumbers.size());
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[lanes];
+        for (int i = 0; i < lanes; i++) {
+            workers[i] = CompletableFuture.runAsync(() -> {
+                int index;
+                while (!cancelled.getAsBoolean() && (index = next.getAndIncrement()) < referenceNumbers.size()) {
+                    onResult.accept(trackBatchItem(referenceNumbers.get(index), context));
+                }
+            }, upstreamExecutor);
+        }
+        return CompletableFuture.allOf(workers);
+    }
+
+    private BatchItemResult trackBatchItem(String referenceNumber, TrackingContext context) {
+        try {
+            return BatchItemResult.builder()
+                    .referenceNumber(referenceNumber)
+                    .status(BatchItemResult.Status.OK)
+                    .shipment(trackShipment(referenceNumber, context))
+                    .build();
+        } catch (RuntimeException e) {
+            log.debug("Batch item {} failed: {}", referenceNumber, e.getMessage());
+            return BatchItemResult.builder()
+                    .referenceNumber(referenceNumber)
+                    .status(BatchItemResult.Status.ERROR)
+                    .error(e.getMessage())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.sendify.server.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.sendify.server.cache.ShipmentCache;
+import com.sendify.server.client.DbSchenkerClient;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.dto.internal.ShipmentEventDelta;
+import com.sendify.server.exception.TrackingReferenceMissingException;
+import com.sendify.server.exception.UpstreamOverloadedException;
+import com.sendify.server.store.ShipmentHistoryStore;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Server-sent event subscriptions for shipment updates.
+ *
+ * Every watched reference has exactly one poll, shared by all of its subscribers, scheduled on the
+ * shared watchScheduler. The poll interval starts at {@code min-interval}, doubles after every poll
+ * without new events up to {@code max-interval}, and drops back to the minimum once something changes.
+ *
+ * A new subscriber first receives a {@code snapshot} event with the full shipment, taken from the cache or
+ * the history of a delivered shipment when the watch starts and one is known. After that only
+ * {@code events} with the tracking events that were not in the previous snapshot are pushed.
+ * Events are compared by code, date and location. Once the shipment is delivered the watch ends.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShipmentWatchService {
+
+    @Value("${dbschenker.watch.min-interval:1m}")
+    private Duration minInterval;
+
+    @Value("${dbschenker.watch.max-interval:15m}")
+    private Duration maxInterval;
+
+    @Value("${dbschenker.watch.timeout:1h}")
+    private Duration subscriptionTimeout;
+
+    @Value("${dbschenker.watch.max-shipments:1000}")
+    private int maxShipments;
+
+    private final DbSchenkerClient dbSchenkerClient;
+    private final ShipmentCache shipmentCache;
+    private final ShipmentHistoryStore historyStore;
+    private final ExecutorService upstreamExecutor;
+    private final ScheduledExecutorService watchScheduler;
+
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+    /** Entries of {@link #watches}, changed together with the map so the {@code max-shipments} cap holds. */
+    private final AtomicInteger watchCount = new AtomicInteger();
+
+    /**
+     * Subscribes to updates of the given shipment. The first subscriber of a reference starts its poll.
+     */
+    public SseEmitter subscribe(String referenceNumber) {
+        if (referenceNumber == null || referenceNumber.trim().isEmpty()) {
+            throw new TrackingReferenceMissingException("Missing tracking reference");
+        }
+        String reference = referenceNumber.trim();
+
+        SseEmitter emitter = new SseEmitter(subscriptionTimeout.toMillis());
+        Watch watch = watches.compute(reference, (key, existing) -> {
+            Watch target = existing;
+            if (target == null) {
+                // watches.size() lags behind concurrent subscribers of other references, the counter does not
+                if (watchCount.incrementAndGet() > maxShipments) {
+                    watchCount.decrementAndGet();
+                    throw new UpstreamOverloadedException("Too many watched shipments, at most " + maxShipments + " are allowed");
+                }
+                target = new Watch(key);
+            }
+            target.subscribers.add(emitter);
+            return target;
+        });
+        emitter.onCompletion(() -> unsubscribe(watch, emitter));
+        emitter.onTimeout(() -> unsubscribe(watch, emitter));
+        emitter.onError(e -> unsubscribe(watch, emitter));
+
+        ShipmentDetailsDto snapshot = watch.snapshot;
+        if (snapshot != null) {
+            send(watch, emitter, SseEmitter.event().name("snapshot").data(snapshot));
+        }
+        watch.start();
+        return emitter;
+    }
+
+    /**
+     * Number of shipments currently polled.
+     */
+    public int watchedShipments() {
+        return watches.size();
+    }
+
+    @PreDestroy
+    void close() {
+        watches.values().forEach(watch -> {
+            watch.cancel();
+            watch.subscribers.forEach(SseEmitter::complete);
+        });
+        watches.clear();
+        watchCount.set(0);
+    }
+
+    private void unsubscribe(Watch watch, SseEmitter emitter) {
+        watches.computeIfPresent(watch.reference, (key, current) -> {
+            current.subscribers.remove(emitter);
+            if (current.subscribers.isEmpty()) {
+                current.cancel();
+                watchCount.decrementAndGet();
+                log.debug("Stopped watching shipment {}", key);
+                return null;
+            }
+            return current;
+        });
+    }
+
+    private void send(Watch watch, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping watcher of {}: {}", watch.reference, e.getMessage());
+            unsubscribe(watch, emitter);
+        }
+    }
+
+    /**
+     * Returns the events of {@code current} that are not part of {@code previous}.
+     * Against a null previous snapshot every event is new.
+     */
+    static ShipmentEventDelta diff(String referenceNumber, ShipmentDetailsDto previous, ShipmentDetailsDto current) {
+        Set<EventKey> knownHistory = previous != null ? keys(previous.getTrackingHistory()) : Set.of();
+        Map<String, Set<EventKey>> knownPackages = new HashMap<>();
+        if (previous != null && previous.getPackageTracking() != null) {
+            for (ShipmentDetailsDto.PackageTracking pkg : previous.getPackageTracking()) {
+                knownPackages.put(pkg.getPackageId(), keys(pkg.getEvents()));
+            }
+        }
+
+        List<ShipmentDetailsDto.TrackingEvent> newHistory = newEvents(current.getTrackingHistory(), knownHistory);
+        List<ShipmentDetailsDto.PackageTracking> newPackages = new ArrayList<>();
+        if (current.getPackageTracking() != null) {
+            for (ShipmentDetailsDto.PackageTracking pkg : current.getPackageTracking()) {
+                List<ShipmentDetailsDto.TrackingEvent> events =
+                        newEvents(pkg.getEvents(), knownPackages.getOrDefault(pkg.getPackageId(), Set.of()));
+                if (!events.isEmpty()) {
+                    newPackages.add(ShipmentDetailsDto.PackageTracking.builder()
+                            .packageId(pkg.getPackageId())
+                            .events(events)
+                            .build());
+                }
+            }
+        }
+        return ShipmentEventDelta.builder()
+                .referenceNumber(referenceNumber)
+                .trackingHistory(newHistory)
+                .packageTracking(newPackages)
+                .build();
+    }
+
+    private static List<ShipmentDetailsDto.TrackingEvent> newEvents(List<ShipmentDetailsDto.TrackingEvent> events,
+                                                                   Set<EventKey> known) {
+        if (events == null) {
+            return List.of();
+        }
+        return events.stream()
+                .filter(event -> !known.contains(EventKey.of(event)))
+                .toList();
+    }
+
+    private static Set<EventKey> keys(List<ShipmentDetailsDto.TrackingEvent> events) {
+        Set<EventKey> keys = new HashSet<>();
+        if (events != null) {
+            events.forEach(event -> keys.add(EventKey.of(event)));
+        }
+        return keys;
+    }
+
+    private record EventKey(String code, String date, String location) {
+        static EventKey of(ShipmentDetailsDto.TrackingEvent event) {
+            return new EventKey(event.getCode(), event.getDate(), event.getLocation());
+        }
+    }
+
+    /**
+     * Poll state of one watched reference. Polls of a watch never overlap: the next one is only
+     * scheduled when the previous one has finished.
+     */
+    private final class Watch {
+
+        private final String reference;
+        private final Set<SseEmitter> subscribers = new CopyOnWriteArraySet<>();
+
+        private volatile ShipmentDetailsDto snapshot;
+        private Duration interval = minInterval;
+        private ScheduledFuture<?> next;
+        private boolean started;
+        private boolean cancelled;
+
+        private Watch(String reference) {
+            this.reference = reference;
+        }
+
+        synchronized void start() {
+            if (!started) {
+                started = true;
+                log.debug("Started watching shipment {}", reference);
+                upstreamExecutor.execute(this::poll);
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            if (!cancelled) {
+                next = watchScheduler.schedule(() -> upstreamExecutor.execute(this::poll),
+                        interval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void poll() {
+            ShipmentDetailsDto previous = snapshot;
+            ShipmentDetailsDto known = previous == null ? known() : null;
+            ShipmentDetailsDto current;
+            if (known != null) {
+                current = known;
+            } else {
+                try {
+                    current = dbSchenkerClient.trackShipment(reference);
+                } catch (RuntimeException e) {
+                    log.warn("Watch poll of {} failed: {}", reference, e.getMessage());
+                    interval = backedOff(interval);
+                    scheduleNext();
+                    return;
+                }
+                shipmentCache.put(reference, current);
+                historyStore.record(reference, current);
+            }
+
+            snapshot = current;
+            boolean delivered = shipmentCache.isDelivered(current);
+            if (previous == null) {
+                subscribers.forEach(emitter -> send(this, emitter, SseEmitter.event().name("snapshot").data(current)));
+                interval = minInterval;
+            } else {
+                ShipmentEventDelta delta = diff(reference, previous, current);
+                delta.setDelivered(delivered);
+                if (delta.hasEvents()) {
+                    subscribers.forEach(emitter -> send(this, emitter, SseEmitter.event().name("events").data(delta)));
+                    interval = minInterval;
+                } else {
+                    interval = backedOff(interval);
+                }
+            }
+
+            if (delivered) {
+                log.debug("Shipment {} delivered, closing its watchers", reference);
+                // Later subscribers start a fresh watch whose first poll answers from the cache or the history
+                if (watches.remove(reference, this)) {
+                    watchCount.decrementAndGet();
+                }
+                cancel();
+                subscribers.forEach(SseEmitter::complete);
+                return;
+            }
+            scheduleNext();
+        }
+
+        /**
+         * The snapshot for the first poll if it is known locally: a fresh cache entry, or the recorded history
+         * of a delivered shipment, which no longer changes. Null if the upstream has to be asked.
+         */
+        private ShipmentDetailsDto known() {
+            ShipmentDetailsDto cached = shipmentCache.get(reference);
+            if (cached != null) {
+                return cached;
+            }
+            ShipmentDetailsDto recorded = historyStore.find(reference);
+            if (recorded != null && shipmentCache.isDelivered(recorded)) {
+                shipmentCache.put(reference, recorded);
+                return recorded;
+            }
+            return null;
+        }
+
+        private Duration backedOff(Duration current) {
+            Duration doubled = current.multipliedBy(2);
+            return doubled.compareTo(maxInterval) > 0 ? maxInterval : doubled;
+        }
+    }
+}
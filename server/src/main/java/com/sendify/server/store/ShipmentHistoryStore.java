@@ -0,0 +1,501 @@
+package com.sendify.server.store;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.dto.internal.ShipmentHistoryRecord;
+import com.sendify.server.util.EventTimestamps;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable history of every tracking event seen per shipment, kept after the upstream stopped reporting it.
+ * Records are appended to a JSON-lines log that is replayed on startup: an event is written once per shipment
+ * or package, keyed by code, date and location, and a snapshot of the parties and package details whenever
+ * it changed. In memory the history is indexed by reference number and by event date.
+ *
+ * The log is written by a single writer thread, so recording never waits for the disk. At most
+ * {@code max-shipments} shipments are kept, dropping the least recently recorded ones, and shipments not
+ * recorded within {@code retention} are dropped. The log is rewritten from the kept records once more than
+ * half of its lines are superseded or dropped.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShipmentHistoryStore {
+
+    static final String FILE_NAME = "shipment-history.jsonl";
+
+    @Value("${dbschenker.store.directory}")
+    private Path storeDirectory;
+
+    @Value("${dbschenker.store.history.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dbschenker.store.history.max-query-results:1000}")
+    private int maxQueryResults;
+
+    @Value("${dbschenker.store.history.max-shipments:100000}")
+    private int maxShipments;
+
+    @Value("${dbschenker.store.history.retention:180d}")
+    private Duration retention;
+
+    private final ObjectMapper objectMapper;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Histories in the order they were last recorded, least recent first. */
+    private final LinkedHashMap<String, History> byReference = new LinkedHashMap<>();
+    /**
+     * Event records by the instant of the event date. A package event that repeats an event of its shipment is
+     * not indexed, so a query lists each movement once. Events whose date cannot be parsed are not indexed.
+     */
+    private final TreeMap<Instant, List<ShipmentHistoryRecord>> byDate = new TreeMap<>();
+    /** Records held by the histories, and lines in the log including superseded and dropped ones. */
+    private long liveRecords;
+    private long fileRecords;
+
+    /** Single thread that owns the log file and its writer. */
+    private ExecutorService writerThread;
+    private BufferedWriter writer;
+
+    @PostConstruct
+    void load() {
+        if (!enabled) {
+            return;
+        }
+        writerThread = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("shipment-history-writer").daemon(true).factory());
+        Path file = storeDirectory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return;
+        }
+        lock.lock();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                fileRecords++;
+                try {
+                    apply(objectMapper.readValue(line, ShipmentHistoryRecord.class));
+                } catch (JsonProcessingException e) {
+                    // A torn last line after a crash; its shipment is recorded again on the next fetch
+                    log.debug("Skipping unreadable history record: {}", e.getOriginalMessage());
+                }
+            }
+            log.info("Loaded {} history records of {} shipments from {}", liveRecords, byReference.size(), file);
+        } catch (IOException e) {
+            log.warn("Failed to load shipment history from {}: {}", file, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+        compact();
+    }
+
+    /**
+     * Records the snapshot and the events of freshly fetched details that are not known yet.
+     * The new records are written to the log in the background.
+     */
+    public void record(String referenceNumber, ShipmentDetailsDto details) {
+        if (!enabled || referenceNumber == null || details == null) {
+            return;
+        }
+        String recordedAt = details.getFetchedAt() != null ? details.getFetchedAt() : Instant.now().toString();
+        List<ShipmentHistoryRecord> candidates = new ArrayList<>();
+        candidates.add(ShipmentHistoryRecord.builder()
+                .referenceNumber(referenceNumber)
+                .shipment(ShipmentDetailsDto.builder()
+                        .sender(details.getSender())
+                        .receiver(details.getReceiver())
+                        .packageDetails(details.getPackageDetails())
+                        .build())
+                .recordedAt(recordedAt)
+                .build());
+        for (ShipmentDetailsDto.TrackingEvent event : nullToEmpty(details.getTrackingHistory())) {
+            candidates.add(eventRecord(referenceNumber, null, event, recordedAt));
+        }
+        for (ShipmentDetailsDto.PackageTracking pkg : nullToEmpty(details.getPackageTracking())) {
+            for (ShipmentDetailsDto.TrackingEvent event : nullToEmpty(pkg.getEvents())) {
+                candidates.add(eventRecord(referenceNumber, pkg.getPackageId(), event, recordedAt));
+            }
+        }
+
+        lock.lock();
+        try {
+            List<ShipmentHistoryRecord> added = candidates.stream().filter(this::apply).toList();
+            History history = byReference.get(referenceNumber);
+            if (history != null) {
+                history.recorded(recordedAt);
+                byReference.putLast(referenceNumber, history);
+            }
+            if (!added.isEmpty()) {
+                fileRecords += added.size();
+                // Queued under the lock, so appends reach the log in the order the records were added
+                write(() -> append(referenceNumber, added));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the recorded history of a shipment: the latest snapshot with every event ever seen, in the order
+     * they were first seen, or null if the reference was never recorded.
+     */
+    public ShipmentDetailsDto find(String referenceNumber) {
+        if (!enabled) {
+            return null;
+        }
+        lock.lock();
+        try {
+            History history = byReference.get(referenceNumber);
+            return history != null ? history.toDetails() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Event records of all shipments dated at or after {@code from} and before {@code to}, ordered by date.
+     * Either bound may be null. At most {@code max-query-results} records are returned.
+     */
+    public List<ShipmentHistoryRecord> findEvents(Instant from, Instant to) {
+        if (!enabled) {
+            return List.of();
+        }
+        List<ShipmentHistoryRecord> result = new ArrayList<>();
+        lock.lock();
+        try {
+            for (List<ShipmentHistoryRecord> records : byDate.subMap(from != null ? from : Instant.MIN, true,
+                    to != null ? to : Instant.MAX, false).values()) {
+                for (ShipmentHistoryRecord record : records) {
+                    if (result.size() >= maxQueryResults) {
+                        return result;
+                    }
+                    result.add(record);
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the shipments not recorded within the retention period, then rewrites the log from the kept
+     * records if more than half of its lines are superseded or dropped.
+     */
+    @Scheduled(fixedDelayString = "${dbschenker.store.history.compaction-interval:1h}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            Instant cutoff = Instant.now().minus(retention);
+            Iterator<History> oldest = byReference.values().iterator();
+            int expired = 0;
+            while (oldest.hasNext()) {
+                History history = oldest.next();
+                if (!history.lastRecorded.isBefore(cutoff)) {
+                    break;
+                }
+                oldest.remove();
+                unindex(history);
+                expired++;
+            }
+            if (expired > 0) {
+                log.info("Dropped the history of {} shipments not recorded since {}", expired, cutoff);
+            }
+            if (fileRecords <= 2 * liveRecords) {
+                return;
+            }
+            List<ShipmentHistoryRecord> live = new ArrayList<>((int) liveRecords);
+            byReference.values().forEach(history -> history.addRecordsTo(live));
+            log.info("Compacting shipment history from {} to {} records", fileRecords, live.size());
+            fileRecords = live.size();
+            // Appends queued before this replace records already in the snapshot, later ones go to the new log
+            write(() -> rewrite(live));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (writerThread == null) {
+            return;
+        }
+        writerThread.shutdown();
+        try {
+            if (!writerThread.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Shipment history writer did not finish; the latest records may be lost");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeWriter();
+    }
+
+    /**
+     * Adds a record to the in-memory history. Returns false for a known event or an unchanged snapshot.
+     * Beyond {@code max-shipments} the least recently recorded shipment is dropped.
+     */
+    private boolean apply(ShipmentHistoryRecord record) {
+        if (record.getReferenceNumber() == null || (record.getShipment() == null && record.getEvent() == null)) {
+            return false;
+        }
+        History history = byReference.get(record.getReferenceNumber());
+        if (history == null) {
+            history = new History();
+            byReference.put(record.getReferenceNumber(), history);
+            evictOverflow();
+        }
+        if (record.getShipment() != null) {
+            if (history.snapshot != null && record.getShipment().equals(history.snapshot.getShipment())) {
+                return false;
+            }
+            if (history.snapshot == null) {
+                liveRecords++;
+            }
+            history.snapshot = record;
+        } else {
+            if (!history.add(record)) {
+                return false;
+            }
+            liveRecords++;
+            Instant date = EventTimestamps.parse(record.getEvent().getDate());
+            if (date != null) {
+                index(date, record, history);
+            }
+        }
+        history.recorded(record.getRecordedAt());
+        byReference.putLast(record.getReferenceNumber(), history);
+        return true;
+    }
+
+    private void evictOverflow() {
+        while (byReference.size() > maxShipments) {
+            unindex(byReference.pollFirstEntry().getValue());
+        }
+    }
+
+    private void index(Instant date, ShipmentHistoryRecord record, History history) {
+        ShipmentDetailsDto.TrackingEvent event = record.getEvent();
+        if (record.getPackageId() != null && history.hasShipmentEvent(event)) {
+            return;
+        }
+        List<ShipmentHistoryRecord> records = byDate.computeIfAbsent(date, key -> new ArrayList<>());
+        if (record.getPackageId() == null) {
+            // A package copy seen before the shipment event is superseded by it
+            records.removeIf(indexed -> indexed.getPackageId() != null
+                    && indexed.getReferenceNumber().equals(record.getReferenceNumber())
+                    && EventKey.of(null, indexed.getEvent()).equals(EventKey.of(null, event)));
+        }
+        records.add(record);
+    }
+
+    /**
+     * Removes a dropped history from the date index and the live record count.
+     */
+    private void unindex(History history) {
+        liveRecords -= history.size();
+        for (ShipmentHistoryRecord record : history.events) {
+            Instant date = EventTimestamps.parse(record.getEvent().getDate());
+            List<ShipmentHistoryRecord> records = date != null ? byDate.get(date) : null;
+            if (records != null && records.removeIf(indexed -> indexed == record) && records.isEmpty()) {
+                byDate.remove(date);
+            }
+        }
+    }
+
+    private void write(Runnable task) {
+        try {
+            writerThread.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the records are recorded again on the next fetch after the restart
+            log.debug("Shipment history writer stopped, records not persisted");
+        }
+    }
+
+    private void append(String referenceNumber, List<ShipmentHistoryRecord> records) {
+        try {
+            if (writer == null) {
+                writer = openWriter();
+            }
+            for (ShipmentHistoryRecord record : records) {
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.newLine();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // The in-memory history still answers; only durability across restarts is lost
+            log.warn("Failed to persist history of {}: {}", referenceNumber, e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the log with the given records, through a temporary file so a crash leaves either log intact.
+     */
+    private void rewrite(List<ShipmentHistoryRecord> records) {
+        closeWriter();
+        Path file = storeDirectory.resolve(FILE_NAME);
+        Path compacted = storeDirectory.resolve(FILE_NAME + ".tmp");
+        try {
+            Files.createDirectories(storeDirectory);
+            try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                for (ShipmentHistoryRecord record : records) {
+                    out.write(objectMapper.writeValueAsString(record));
+                    out.newLine();
+                }
+            }
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to compact shipment history: {}", e.getMessage());
+        }
+    }
+
+    private BufferedWriter openWriter() throws IOException {
+        Files.createDirectories(storeDirectory);
+        Path file = storeDirectory.resolve(FILE_NAME);
+        boolean tornTail = false;
+        if (Files.exists(file) && Files.size(file) > 0) {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+                raf.seek(raf.length() - 1);
+                tornTail = raf.read() != '\n';
+            }
+        }
+        BufferedWriter opened = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (tornTail) {
+            // Keep the first new record off the torn line, otherwise it is skipped with it on the next load
+            opened.newLine();
+        }
+        return opened;
+    }
+
+    private void closeWriter() {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close shipment history: {}", e.getMessage());
+        } finally {
+            writer = null;
+        }
+    }
+
+    private static ShipmentHistoryRecord eventRecord(String referenceNumber, String packageId,
+                                                     ShipmentDetailsDto.TrackingEvent event, String recordedAt) {
+        return ShipmentHistoryRecord.builder()
+                .referenceNumber(referenceNumber)
+                .packageId(packageId)
+                .event(event)
+                .recordedAt(recordedAt)
+                .build();
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+
+    private static final class History {
+        private ShipmentHistoryRecord snapshot;
+        /** Event records of the shipment and its packages, in the order they were first seen. */
+        private final List<ShipmentHistoryRecord> events = new ArrayList<>();
+        private final Set<EventKey> seen = new HashSet<>();
+        private String fetchedAt;
+        private Instant lastRecorded = Instant.MIN;
+
+        boolean add(ShipmentHistoryRecord record) {
+            if (!seen.add(EventKey.of(record.getPackageId(), record.getEvent()))) {
+                return false;
+            }
+            events.add(record);
+            return true;
+        }
+
+        boolean hasShipmentEvent(ShipmentDetailsDto.TrackingEvent event) {
+            return seen.contains(EventKey.of(null, event));
+        }
+
+        void recorded(String recordedAt) {
+            fetchedAt = recordedAt;
+            Instant instant = EventTimestamps.parse(recordedAt);
+            lastRecorded = instant != null ? instant : Instant.now();
+        }
+
+        int size() {
+            return events.size() + (snapshot != null ? 1 : 0);
+        }
+
+        void addRecordsTo(List<ShipmentHistoryRecord> records) {
+            if (snapshot != null) {
+                records.add(snapshot);
+            }
+            records.addAll(events);
+        }
+
+        ShipmentDetailsDto toDetails() {
+            List<ShipmentDetailsDto.TrackingEvent> shipmentEvents = new ArrayList<>();
+            Map<String, List<ShipmentDetailsDto.TrackingEvent>> packageEvents = new LinkedHashMap<>();
+            for (ShipmentHistoryRecord record : events) {
+                (record.getPackageId() == null ? shipmentEvents
+                        : packageEvents.computeIfAbsent(record.getPackageId(), key -> new ArrayList<>())).add(record.getEvent());
+            }
+            ShipmentDetailsDto.ShipmentDetailsDtoBuilder builder = snapshot != null
+                    ? snapshot.getShipment().toBuilder() : ShipmentDetailsDto.builder();
+            return builder
+                    .trackingHistory(List.copyOf(shipmentEvents))
+                    .packageTracking(packageEvents.entrySet().stream()
+                            .map(entry -> ShipmentDetailsDto.PackageTracking.builder()
+                                    .packageId(entry.getKey())
+                                    .events(List.copyOf(entry.getValue()))
+                                    .build())
+                            .toList())
+                    .fetchedAt(fetchedAt)
+                    .build();
+        }
+    }
+
+    private record EventKey(String packageId, String code, String date, String location) {
+
+        static EventKey of(String packageId, ShipmentDetailsDto.TrackingEvent event) {
+            return new EventKey(packageId, event.getCode(), event.getDate(), event.getLocation());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.sendify.server.store;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable reference number -> sttId index.
+ * The mapping never changes upstream, so once resolved a reference can go straight to /land/{sttId}.
+ * Entries are kept in memory and appended to a tab-separated log file that is replayed on startup.
+ * Unreadable lines are skipped; if the log holds more lines than mappings, it is compacted after loading.
+ */
+@Component
+@Slf4j
+public class SttIdIndexStore {
+
+    static final String FILE_NAME = "sttid-index.log";
+
+    private static final char MALFORMED = '\uFFFD';
+
+    @Value("${dbschenker.store.directory}")
+    private Path storeDirectory;
+
+    @Value("${dbschenker.store.sttid-index.enabled:true}")
+    private boolean enabled;
+
+    private final Map<String, String> sttIds = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private BufferedWriter writer;
+
+    @PostConstruct
+    void load() {
+        if (!enabled) {
+            return;
+        }
+        Path file = storeDirectory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return;
+        }
+        int lines = 0;
+        // Undecodable bytes become U+FFFD instead of failing the whole read, and their line is skipped
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                int separator = line.indexOf('\t');
+                // A torn last line after a crash has no separator or an empty sttId; skip it
+                if (separator <= 0 || separator == line.length() - 1 || line.indexOf(MALFORMED) >= 0) {
+                    continue;
+                }
+                sttIds.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+            log.info("Loaded {} sttId mappings from {}", sttIds.size(), file);
+        } catch (IOException e) {
+            // Keep the mappings read so far
+            log.warn("Failed to load sttId index from {}: {}", file, e.getMessage());
+            return;
+        }
+        if (lines > sttIds.size()) {
+            compact(file, lines);
+        }
+    }
+
+    /**
+     * Rewrites the log with one line per current mapping, dropping remapped references and unreadable lines.
+     * The new log replaces the old one through a temporary file, so a crash leaves either of them intact.
+     */
+    private void compact(Path file, int lines) {
+        Path compacted = storeDirectory.resolve(FILE_NAME + ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> mapping : sttIds.entrySet()) {
+                    writeLine(out, mapping.getKey(), mapping.getValue());
+                }
+            }
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Compacted sttId index from {} to {} lines", lines, sttIds.size());
+        } catch (IOException e) {
+            log.warn("Failed to compact sttId index {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the known sttId for the reference number, or null if it has not been resolved yet.
+     */
+    public String find(String referenceNumber) {
+        return enabled ? sttIds.get(referenceNumber) : null;
+    }
+
+    /**
+     * Records a resolved mapping. Unchanged mappings are not written again.
+     */
+    public void put(String referenceNumber, String sttId) {
+        if (!enabled || sttId == null || !isStorable(referenceNumber) || !isStorable(sttId)) {
+            return;
+        }
+        if (sttId.equals(sttIds.put(referenceNumber, sttId))) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (writer == null) {
+                writer = openWriter();
+            }
+            writeLine(writer, referenceNumber, sttId);
+            writer.flush();
+        } catch (IOException e) {
+            // The in-memory mapping still works; only durability across restarts is lost
+            log.warn("Failed to persist sttId mapping for {}: {}", referenceNumber, e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        writeLock.lock();
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close sttId index: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private BufferedWriter openWriter() throws IOException {
+        Files.createDirectories(storeDirectory);
+        Path file = storeDirectory.resolve(FILE_NAME);
+        boolean tornTail = false;
+        if (Files.exists(file) && Files.size(file) > 0) {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+                raf.seek(raf.length() - 1);
+                tornTail = raf.read() != '\n';
+            }
+        }
+        BufferedWriter opened = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (tornTail) {
+            // Otherwise the first new mapping would be joined to the torn line
+            opened.newLine();
+        }
+        return opened;
+    }
+
+    private static void writeLine(BufferedWriter out, String referenceNumber, String sttId) throws IOException {
+        out.write(referenceNumber);
+        out.write('\t');
+        out.write(sttId);
+        out.newLine();
+    }
+
+    private static boolean isStorable(String value) {
+        return !value.isEmpty() && value.chars().noneMatch(c -> c == '\t' || c == '\n' || c == '\r' || c == MALFORMED);
+    }
+}
@@ -0,0 +1,218 @@
+package com.sendify.server.util;
+
+import java.math.BigInteger;
+
+/**
+ * Allocation-free double SHA-256 check for a single captcha puzzle.
+ *
+ * The hashed message is always the 32-byte puzzle followed by an 8-byte little-endian nonce,
+ * which fits into one SHA-256 block. The first 8 message words (the puzzle) and the padding words
+ * never change, so the first 8 compression rounds and the message schedule words that do not
+ * depend on the nonce are computed once in the constructor (the "midstate"). Each attempt only
+ * runs the nonce-dependent part of the first hash plus the second hash.
+ *
+ * The hash is compared to the target as a little-endian 256-bit number using primitive long words,
+ * which gives exactly the same result as {@code new BigInteger(1, reverse(hash)).compareTo(target) < 0}.
+ *
+ * Not thread-safe: every solver worker owns its own instance.
+ */
+final class CaptchaHashEngine {
+
+    private static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+    };
+
+    private static final int[] H0 = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    /** Schedule words W16..W22 do not depend on the nonce (W8). */
+    private static final int FIRST_NONCE_DEPENDENT_WORD = 23;
+
+    private static final int NONCE_WORD = 8;
+
+    /** Message schedule of the first hash; words 0..7 and 9..22 are fixed per puzzle. */
+    private final int[] firstSchedule = new int[64];
+
+    /** Message schedule of the second hash, reused for every attempt. */
+    private final int[] secondSchedule = new int[64];
+
+    /** Working state after the first 8 rounds of the first hash. */
+    private final int[] midstate = new int[8];
+
+    /** Intermediate first hash, reused for every attempt. */
+    private final int[] firstHash = new int[8];
+
+    /** Target as a 256-bit big-endian number split into 4 unsigned longs, most significant first. */
+    private final long[] target = new long[4];
+
+    /** True when the target exceeds 2^256 and every hash satisfies it. */
+    private final boolean unbounded;
+
+    CaptchaHashEngine(byte[] puzzleArray, BigInteger targetDifficulty) {
+        unbounded = targetDifficulty.bitLength() > 256;
+        if (!unbounded) {
+            for (int i = 0; i < 4; i++) {
+                target[i] = targetDifficulty.shiftRight(64 * (3 - i)).longValue();
+            }
+        }
+
+        for (int i = 0; i < 8; i++) {
+            firstSchedule[i] = ((puzzleArray[4 * i] & 0xff) << 24)
+                    | ((puzzleArray[4 * i + 1] & 0xff) << 16)
+                    | ((puzzleArray[4 * i + 2] & 0xff) << 8)
+                    | (puzzleArray[4 * i + 3] & 0xff);
+        }
+        // Nonce bytes 4..7 are always zero (the nonce is a non-negative int), then the padding
+        firstSchedule[9] = 0;
+        firstSchedule[10] = 0x80000000;
+        firstSchedule[15] = 40 * 8;
+        for (int t = 16; t < FIRST_NONCE_DEPENDENT_WORD; t++) {
+            firstSchedule[t] = scheduleWord(firstSchedule, t);
+        }
+
+        // The first 8 rounds only consume the puzzle words
+        int a = H0[0], b = H0[1], c = H0[2], d = H0[3], e = H0[4], f = H0[5], g = H0[6], h = H0[7];
+        for (int t = 0; t < NONCE_WORD; t++) {
+            int t1 = h + bigSigma1(e) + ch(e, f, g) + K[t] + firstSchedule[t];
+            int t2 = bigSigma0(a) + maj(a, b, c);
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        midstate[0] = a;
+        midstate[1] = b;
+        midstate[2] = c;
+        midstate[3] = d;
+        midstate[4] = e;
+        midstate[5] = f;
+        midstate[6] = g;
+        midstate[7] = h;
+
+        // Padding of the second hash: 32-byte message, 0x80 terminator, bit length 256
+        secondSchedule[8] = 0x80000000;
+        secondSchedule[15] = 32 * 8;
+    }
+
+    /**
+     * Returns true if reverse(sha256(sha256(puzzle + nonce))) is below the target,
+     * where the nonce is encoded as 8 little-endian bytes.
+     */
+    boolean matches(int nonceValue) {
+        if (unbounded) {
+            return true;
+        }
+        int[] w = firstSchedule;
+        w[NONCE_WORD] = Integer.reverseBytes(nonceValue);
+        for (int t = FIRST_NONCE_DEPENDENT_WORD; t < 64; t++) {
+            w[t] = scheduleWord(w, t);
+        }
+        int a = midstate[0], b = midstate[1], c = midstate[2], d = midstate[3];
+        int e = midstate[4], f = midstate[5], g = midstate[6], h = midstate[7];
+        for (int t = NONCE_WORD; t < 64; t++) {
+            int t1 = h + bigSigma1(e) + ch(e, f, g) + K[t] + w[t];
+            int t2 = bigSigma0(a) + maj(a, b, c);
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        firstHash[0] = H0[0] + a;
+        firstHash[1] = H0[1] + b;
+        firstHash[2] = H0[2] + c;
+        firstHash[3] = H0[3] + d;
+        firstHash[4] = H0[4] + e;
+        firstHash[5] = H0[5] + f;
+        firstHash[6] = H0[6] + g;
+        firstHash[7] = H0[7] + h;
+
+        w = secondSchedule;
+        System.arraycopy(firstHash, 0, w, 0, 8);
+        for (int t = 16; t < 64; t++) {
+            w[t] = scheduleWord(w, t);
+        }
+        a = H0[0];
+        b = H0[1];
+        c = H0[2];
+        d = H0[3];
+        e = H0[4];
+        f = H0[5];
+        g = H0[6];
+        h = H0[7];
+        for (int t = 0; t < 64; t++) {
+            int t1 = h + bigSigma1(e) + ch(e, f, g) + K[t] + w[t];
+            int t2 = bigSigma0(a) + maj(a, b, c);
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+
+        // Reversing the digest bytes makes the last digest word the most significant one
+        long word0 = littleEndianPair(H0[7] + h, H0[6] + g);
+        int cmp = Long.compareUnsigned(word0, target[0]);
+        if (cmp != 0) {
+            return cmp < 0;
+        }
+        long word1 = littleEndianPair(H0[5] + f, H0[4] + e);
+        cmp = Long.compareUnsigned(word1, target[1]);
+        if (cmp != 0) {
+            return cmp < 0;
+        }
+        long word2 = littleEndianPair(H0[3] + d, H0[2] + c);
+        cmp = Long.compareUnsigned(word2, target[2]);
+        if (cmp != 0) {
+            return cmp < 0;
+        }
+        long word3 = littleEndianPair(H0[1] + b, H0[0] + a);
+        return Long.compareUnsigned(word3, target[3]) < 0;
+    }
+
+    private static long littleEndianPair(int high, int low) {
+        return ((Integer.reverseBytes(high) & 0xffffffffL) << 32) | (Integer.reverseBytes(low) & 0xffffffffL);
+    }
+
+    private static int scheduleWord(int[] w, int t) {
+        int w15 = w[t - 15];
+        int w2 = w[t - 2];
+        int s0 = Integer.rotateRight(w15, 7) ^ Integer.rotateRight(w15, 18) ^ (w15 >>> 3);
+        int s1 = Integer.rotateRight(w2, 17) ^ Integer.rotateRight(w2, 19) ^ (w2 >>> 10);
+        return w[t - 16] + s0 + w[t - 7] + s1;
+    }
+
+    private static int bigSigma0(int x) {
+        return Integer.rotateRight(x, 2) ^ Integer.rotateRight(x, 13) ^ Integer.rotateRight(x, 22);
+    }
+
+    private static int bigSigma1(int x) {
+        return Integer.rotateRight(x, 6) ^ Integer.rotateRight(x, 11) ^ Integer.rotateRight(x, 25);
+    }
+
+    private static int ch(int x, int y, int z) {
+        return (x & y) ^ (~x & z);
+    }
+
+    private static int maj(int x, int y, int z) {
+        return (x & y) ^ (x & z) ^ (y & z);
+    }
+}
@@ -1,62 +1,114 @@
 package com.sendify.server.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.metrics.TrackingMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigInteger;
-import java.security.MessageDigest;
 import java.util.Base64;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class DbSchenkerCaptchaSolver {
 
+    /**
+     * Number of consecutive nonces a worker claims at once. Small enough that workers
+     * stop quickly once a solution is found, large enough to keep contention negligible.
+     */
+    private static final int NONCE_BLOCK_SIZE = 1 << 12;
+
+    private static final long NOT_FOUND = Long.MAX_VALUE;
+
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
     private final ObjectMapper objectMapper;
+    private final ForkJoinPool captchaSolverPool;
+    private final TrackingMetrics metrics;
 
     /**
      * Decodes the captcha puzzle, solves each JWT-based puzzle, and returns the encoded solution.
      * The input is a base64-encoded string containing one or more JWTs, each with a puzzle payload.
      */
     public String generateCaptcha(String captchaPuzzleBase64) {
+        return generateCaptcha(captchaPuzzleBase64, NEVER_CANCELLED);
+    }
+
+    /**
+     * Like {@link #generateCaptcha(String)}, but the workers stop claiming nonce blocks once {@code cancelled}
+     * returns true, e.g. when the caller's deadline has passed. Throws {@link CancellationException} if the search
+     * was cancelled before a solution was found.
+     */
+    public String generateCaptcha(String captchaPuzzleBase64, BooleanSupplier cancelled) {
+        try {
+            return generateCaptchaAsync(captchaPuzzleBase64, cancelled).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    private CompletableFuture<String> generateCaptchaAsync(String captchaPuzzleBase64, BooleanSupplier cancelled) {
+        long start = System.nanoTime();
+        String[] jwtTokens;
+        var searches = new ArrayList<CompletableFuture<String>>();
         try {
             // Decode the base64-encoded string to get the comma-separated JWTs
             String decoded = new String(Base64.getDecoder().decode(captchaPuzzleBase64));
-            String[] jwtTokens = decoded.split(",");
-            var solutions = new ArrayList<Map<String, String>>();
+            jwtTokens = decoded.split(",");
 
+            // Start all puzzle searches first so the JWTs of one challenge are solved concurrently
             for (String jwt : jwtTokens) {
-                // JWT format: header.payload.signature (we only need the payload)
-                String[] jwtParts = jwt.split("\\.");
-                if (jwtParts.length < 2) {
-                    throw new RuntimeException("Invalid JWT format");
-                }
-                String payloadB64 = jwtParts[1];
-                // Decode the JWT payload (base64url)
-                byte[] payloadBytes = Base64.getUrlDecoder().decode(payloadB64);
-                String payloadJson = new String(payloadBytes);
-                com.fasterxml.jackson.databind.JsonNode payloadNode = objectMapper.readTree(payloadJson);
-                // Extract the puzzle (base64-encoded) from the payload
-                String puzzleB64 = payloadNode.get("puzzle").asText();
-                byte[] puzzleBytes = Base64.getDecoder().decode(puzzleB64);
-                // Solve the puzzle to get the nonce solution
-                String solution = solvePuzzle(puzzleBytes);
+                searches.add(solvePuzzleAsync(extractPuzzle(jwt), cancelled));
+            }
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to generate captcha", ex));
+        }
+
+        return CompletableFuture.allOf(searches.toArray(CompletableFuture<?>[]::new)).thenApply(ignored -> {
+            var solutions = new ArrayList<Map<String, String>>();
+            for (int i = 0; i < jwtTokens.length; i++) {
                 Map<String, String> entry = new HashMap<>();
-                entry.put("jwt", jwt);
-                entry.put("solution", solution);
+                entry.put("jwt", jwtTokens[i]);
+                entry.put("solution", searches.get(i).join());
                 solutions.add(entry);
             }
-            // Encode the solutions as JSON, then base64
-            String json = objectMapper.writeValueAsString(solutions);
-            return Base64.getEncoder().encodeToString(json.getBytes());
-        } catch (Exception ex) {
-            throw new RuntimeException("Failed to generate captcha", ex);
+            try {
+                // Encode the solutions as JSON, then base64
+                String json = objectMapper.writeValueAsString(solutions);
+                metrics.recordCaptchaChallenge(jwtTokens.length, System.nanoTime() - start);
+                return Base64.getEncoder().encodeToString(json.getBytes());
+            } catch (Exception ex) {
+                throw new RuntimeException("Failed to generate captcha", ex);
+            }
+        });
+    }
+
+    /**
+     * Extracts the puzzle bytes from a single JWT.
+     * JWT format: header.payload.signature (we only need the payload).
+     */
+    private byte[] extractPuzzle(String jwt) throws Exception {
+        String[] jwtParts = jwt.split("\\.");
+        if (jwtParts.length < 2) {
+            throw new RuntimeException("Invalid JWT format");
         }
+        // Decode the JWT payload (base64url)
+        byte[] payloadBytes = Base64.getUrlDecoder().decode(jwtParts[1]);
+        com.fasterxml.jackson.databind.JsonNode payloadNode = objectMapper.readTree(new String(payloadBytes));
+        // Extract the puzzle (base64-encoded) from the payload
+        return Base64.getDecoder().decode(payloadNode.get("puzzle").asText());
     }
 
     /**
@@ -72,6 +124,20 @@ public class DbSchenkerCaptchaSolver {
      *   reverse(sha256(sha256(puzzle + nonce))) < target
      */
     public String solvePuzzle(byte[] puzzleArray) {
+        try {
+            return solvePuzzleAsync(puzzleArray, NEVER_CANCELLED).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    /**
+     * Splits the nonce space across the captcha solver pool.
+     * Workers claim blocks of consecutive nonces; once any worker finds a solution, blocks
+     * beyond it are no longer claimed and the others stop. Blocks below the hit are finished,
+     * so the result is always the smallest valid nonce - the same one the sequential search returns.
+     */
+    private CompletableFuture<String> solvePuzzleAsync(byte[] puzzleArray, BooleanSupplier cancelled) {
         // Extract difficulty parameters from the puzzle
         int t13 = Byte.toUnsignedInt(puzzleArray[13]);
         int t14 = Byte.toUnsignedInt(puzzleArray[14]);
@@ -82,30 +148,63 @@ public class DbSchenkerCaptchaSolver {
         // targetDifficulty = t14 * o
         BigInteger targetDifficulty = BigInteger.valueOf(t14).multiply(o);
 
-        int nonceValue = 0;
-        byte[] foundSolution = null;
-        // Brute-force search for a nonce that satisfies the hash condition
-        while (nonceValue >= 0) {
-            // Convert the integer nonce to an 8-byte little-endian array
-            byte[] nonceArray = generateNonceArray(nonceValue);
-            // Calculate the double SHA-256 hash and compare to the target
-            BigInteger hashResult = calculateHashValue(nonceArray, puzzleArray);
-            if (hashResult.compareTo(targetDifficulty) < 0) {
-                foundSolution = nonceArray;
-                break;
-            }
-            nonceValue++;
+        long start = System.nanoTime();
+        AtomicInteger nextBlock = new AtomicInteger();
+        AtomicLong bestNonce = new AtomicLong(NOT_FOUND);
+        AtomicLong noncesTried = new AtomicLong();
+        int workers = captchaSolverPool.getParallelism();
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[workers];
+        for (int w = 0; w < workers; w++) {
+            tasks[w] = CompletableFuture.runAsync(
+                    () -> noncesTried.addAndGet(searchNonces(puzzleArray, targetDifficulty, nextBlock, bestNonce, cancelled)),
+                    captchaSolverPool);
         }
-        if (foundSolution == null) {
-            log.error("No captcha solution found");
-            return "";
+
+        return CompletableFuture.allOf(tasks).thenApply(ignored -> {
+            long nonce = bestNonce.get();
+            if (nonce == NOT_FOUND && cancelled.getAsBoolean()) {
+                throw new CancellationException("Captcha search cancelled after " + noncesTried.get() + " nonces");
+            }
+            metrics.recordPuzzle(t13, t14, noncesTried.get(), System.nanoTime() - start);
+            if (nonce == NOT_FOUND) {
+                log.error("No captcha solution found");
+                return "";
+            }
+            // Return the solution as a base64-encoded string
+            return Base64.getEncoder().encodeToString(generateNonceArray((int) nonce));
+        });
+    }
+
+    /**
+     * Worker loop: claims nonce blocks until the space is exhausted, a smaller solution exists or the search
+     * is cancelled. Returns the number of nonces this worker hashed.
+     */
+    private long searchNonces(byte[] puzzleArray, BigInteger targetDifficulty,
+                              AtomicInteger nextBlock, AtomicLong bestNonce, BooleanSupplier cancelled) {
+        // One engine per worker: its buffers and the puzzle midstate are reused for every nonce
+        CaptchaHashEngine hashEngine = new CaptchaHashEngine(puzzleArray, targetDifficulty);
+        long tried = 0;
+        while (true) {
+            int start = nextBlock.getAndAdd(NONCE_BLOCK_SIZE);
+            // A negative start means the int nonce space has been exhausted
+            if (start < 0 || start >= bestNonce.get() || cancelled.getAsBoolean()) {
+                return tried;
+            }
+            for (int nonceValue = start; nonceValue >= 0 && nonceValue - start < NONCE_BLOCK_SIZE; nonceValue++) {
+                tried++;
+                // Calculate the double SHA-256 hash and compare to the target
+                if (hashEngine.matches(nonceValue)) {
+                    long found = nonceValue;
+                    bestNonce.accumulateAndGet(found, Math::min);
+                    return tried;
+                }
+            }
         }
-        // Return the solution as a base64-encoded string
-        return Base64.getEncoder().encodeToString(foundSolution);
     }
 
     /**
      * Converts an integer nonce to an 8-byte array in little-endian order.
+     * Only used to encode the found solution; the search itself works on the int nonce.
      * Each byte is filled with the least significant 8 bits of the number,
      * then the number is shifted right by 8 bits for the next byte.
      */
@@ -118,42 +217,4 @@ public class DbSchenkerCaptchaSolver {
         }
         return n;
     }
-
-    /**
-     * Calculates the double SHA-256 hash of the puzzle and nonce, reverses the result,
-     * and returns it as a BigInteger for comparison with the target difficulty.
-     *
-     * Steps:
-     *   1. Concatenate the 32-byte puzzle and 8-byte nonce into a 40-byte array.
-     *   2. Compute SHA-256 hash of the 40-byte array.
-     *   3. Compute SHA-256 hash of the previous hash (double SHA-256).
-     *   4. Reverse the resulting 32-byte hash (to match endianness).
-     *   5. Convert the reversed hash to a positive BigInteger.
-     */
-    private BigInteger calculateHashValue(byte[] nonceArray, byte[] puzzleArray) {
-        try {
-            // Concatenate puzzle and nonce
-            byte[] combined = new byte[40];
-            System.arraycopy(puzzleArray, 0, combined, 0, 32);
-            System.arraycopy(nonceArray, 0, combined, 32, 8);
-
-            // First SHA-256 hash
-            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
-            byte[] firstHash = sha256.digest(combined);
-            // Second SHA-256 hash (double hash)
-            byte[] secondHash = sha256.digest(firstHash);
-
-            // Reverse the hash bytes (to match little-endian comparison)
-            byte[] reversed = new byte[secondHash.length];
-            for (int i = 0; i < secondHash.length; i++) {
-                reversed[i] = secondHash[secondHash.length - 1 - i];
-            }
-
-            // Convert to BigInteger for comparison (positive value)
-            return new BigInteger(1, reversed);
-        } catch (Exception e) {
-            log.error("Hash calculation failed: {}", e.getMessage(), e);
-            throw new RuntimeException("Hash calculation failed", e);
-        }
-    }
-}
\ No newline at end of file
+}
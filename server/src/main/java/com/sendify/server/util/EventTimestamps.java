@@ -0,0 +1,48 @@
+package com.sendify.server.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses the ISO-8601 timestamps used by upstream tracking events, e.g. {@code 2025-11-03T08:15:00+01:00}.
+ */
+public final class EventTimestamps {
+
+    private EventTimestamps() {
+    }
+
+    /**
+     * The instant of an event date, or null if the upstream sent something that is not an offset date-time.
+     */
+    public static Instant parse(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(date).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a caller supplied lower bound. A plain date such as {@code 2025-11-03} means its start in UTC.
+     *
+     * @throws IllegalArgumentException if the value is neither an offset date-time nor a date
+     */
+    public static Instant parseBound(String value) {
+        Instant instant = parse(value);
+        if (instant != null) {
+            return instant;
+        }
+        try {
+            return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(
+                    "Expected an ISO-8601 date or date-time such as 2025-11-03T08:00:00+01:00, got: " + value);
+        }
+    }
+}
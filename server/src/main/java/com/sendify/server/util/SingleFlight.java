@@ -0,0 +1,119 @@
+package com.sendify.server.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent calls for the same key.
+ * The first caller runs the call on its own thread or an executor; callers arriving while it is in flight wait for
+ * that call and receive the same result or the same exception. Results are not retained afterwards.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V execute(K key, Supplier<V> call) {
+        return execute(key, call, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Like {@link #execute(Object, Supplier)}, but a caller that joins a call in flight waits at most
+     * {@code maxWaitNanos} for it and then throws the exception from {@code onTimeout}. The shared call goes on.
+     * A caller that starts the call is bounded by the call itself.
+     */
+    public V execute(K key, Supplier<V> call, long maxWaitNanos, Supplier<? extends RuntimeException> onTimeout) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            return await(existing, maxWaitNanos, onTimeout);
+        }
+        try {
+            V value = call.get();
+            pending.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    /**
+     * Like {@link #execute(Object, Supplier, long, Supplier)}, but the call runs on the executor, so the caller
+     * that starts it waits at most {@code maxWaitNanos} as well. The call goes on for the others when it stops
+     * waiting, so its limits must not depend on the caller that happened to start it.
+     */
+    public V execute(K key, Supplier<V> call, Executor executor, long maxWaitNanos, Supplier<? extends RuntimeException> onTimeout) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, pending);
+        if (existing == null) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        pending.complete(call.get());
+                    } catch (Throwable e) {
+                        pending.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(key, pending);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(key, pending);
+                pending.completeExceptionally(e);
+                throw e;
+            }
+            existing = pending;
+        }
+        return await(existing, maxWaitNanos, onTimeout);
+    }
+
+    /**
+     * Number of keys with a call currently in flight.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> pending, long maxWaitNanos, Supplier<? extends RuntimeException> onTimeout) {
+        if (maxWaitNanos == Long.MAX_VALUE) {
+            return await(pending);
+        }
+        try {
+            return pending.get(Math.max(maxWaitNanos, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw onTimeout.get();
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a call in flight");
+        }
+    }
+
+    private V await(CompletableFuture<V> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException re) {
+            return re;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+}
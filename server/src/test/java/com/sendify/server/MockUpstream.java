@@ -0,0 +1,88 @@
+package com.sendify.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+import org.springframework.web.client.RestTemplate;
+
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Stands in for the tracking API behind the application's RestTemplate (see application-test.properties).
+ * Every request is answered by one {@link ResponseCreator} after an optional latency, and the number of
+ * requests and the peak number of concurrent ones are recorded.
+ */
+public class MockUpstream {
+
+    public static final String API_BASE = "http://upstream.test/shipments";
+    public static final String LAND_STT = loadPayload("/payloads/land-small.json");
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public MockUpstream(RestTemplate restTemplate, Duration latency, ResponseCreator responses) {
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(ExpectedCount.manyTimes(), request -> { }).andRespond(request -> {
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(latency.toMillis());
+                return responses.createResponse(request);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /** A search response whose results have the given ids, e.g. {@code LandStt:SEMMA1806203236}. */
+    public static ResponseCreator searchResult(String... ids) {
+        StringBuilder results = new StringBuilder();
+        for (String id : ids) {
+            if (!results.isEmpty()) {
+                results.append(',');
+            }
+            String stt = id.substring(id.indexOf(':') + 1);
+            results.append("{\"id\":\"").append(id).append("\",\"stt\":\"").append(stt).append("\",\"transportMode\":\"LAND\"}");
+        }
+        return withSuccess("{\"result\":[" + results + "]}", MediaType.APPLICATION_JSON);
+    }
+
+    public static ResponseCreator landStt() {
+        return withSuccess(LAND_STT, MediaType.APPLICATION_JSON);
+    }
+
+    /** A 429 carrying a captcha challenge. */
+    public static ResponseCreator challenge(String puzzle) {
+        return withStatus(HttpStatus.TOO_MANY_REQUESTS).header("captcha-puzzle", puzzle);
+    }
+
+    private static String loadPayload(String resource) {
+        try (InputStream in = MockUpstream.class.getResourceAsStream(resource)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
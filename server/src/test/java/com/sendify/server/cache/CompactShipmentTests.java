@@ -0,0 +1,81 @@
+package com.sendify.server.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+
+class CompactShipmentTests {
+
+    private final Vocabulary vocabulary = new Vocabulary(100);
+
+    @Test
+    void rebuildsTheSameDetailsWithSharedEvents() {
+        ShipmentDetailsDto.TrackingEvent collected = event("COL", "2025-11-03T08:15:00+01:00", "Malmö");
+        ShipmentDetailsDto.TrackingEvent departed = event("DEP", "2025-11-03T18:40+01:00", "Malmö");
+        ShipmentDetailsDto.TrackingEvent arrived = event("ARR", "2025-11-05T06:10:07.250Z", "Hamburg");
+        ShipmentDetailsDto.TrackingEvent undated = event("ENT", "05.11.2025", "Hamburg");
+        ShipmentDetailsDto details = ShipmentDetailsDto.builder()
+                .sender(ShipmentDetailsDto.Party.builder().name("Sendify AB").build())
+                .trackingHistory(List.of(collected, departed, arrived, undated))
+                .packageTracking(List.of(
+                        ShipmentDetailsDto.PackageTracking.builder().packageId("P1").events(List.of(collected, departed)).build(),
+                        ShipmentDetailsDto.PackageTracking.builder().packageId("P2").events(List.of(event("COL", "2025-11-03T08:15:00+01:00", "Malmö"))).build()))
+                .fetchedAt("2025-11-06T00:00:00Z")
+                .build();
+
+        ShipmentDetailsDto rebuilt = CompactShipment.of(details, vocabulary).toDetails();
+
+        assertThat(rebuilt).isEqualTo(details);
+        assertThat(rebuilt.getPackageTracking().get(1).getEvents().getFirst())
+                .isSameAs(rebuilt.getTrackingHistory().getFirst());
+        assertThat(vocabulary.size()).isEqualTo(6);
+    }
+
+    @Test
+    void sharesNoMutableStateWithTheDetailsItIsBuiltFromOrHandsOut() {
+        ShipmentDetailsDto details = ShipmentDetailsDto.builder()
+                .sender(ShipmentDetailsDto.Party.builder()
+                        .name("Sendify AB")
+                        .address(ShipmentDetailsDto.Address.builder().city("Göteborg").build())
+                        .build())
+                .packageDetails(ShipmentDetailsDto.PackageDetails.builder()
+                        .pieceCount(2)
+                        .dimensions(new ArrayList<>(List.of(ShipmentDetailsDto.Dimension.builder().length(1.2).build())))
+                        .build())
+                .trackingHistory(List.of(event("COL", "2025-11-03T08:15:00+01:00", "Malmö")))
+                .build();
+        CompactShipment compact = CompactShipment.of(details, vocabulary);
+
+        details.getSender().getAddress().setCity("Malmö");
+        details.getPackageDetails().getDimensions().clear();
+        ShipmentDetailsDto handedOut = compact.toDetails();
+        handedOut.getSender().setName("Someone else");
+        handedOut.getPackageDetails().setPieceCount(7);
+        handedOut.getTrackingHistory().add(event("DEP", "2025-11-03T18:40+01:00", "Malmö"));
+
+        ShipmentDetailsDto rebuilt = compact.toDetails();
+        assertThat(rebuilt.getSender().getName()).isEqualTo("Sendify AB");
+        assertThat(rebuilt.getSender().getAddress().getCity()).isEqualTo("Göteborg");
+        assertThat(rebuilt.getPackageDetails().getPieceCount()).isEqualTo(2);
+        assertThat(rebuilt.getPackageDetails().getDimensions()).hasSize(1);
+        assertThat(rebuilt.getTrackingHistory()).hasSize(1);
+    }
+
+    @Test
+    void keepsNewValuesOnceTheVocabularyIsFull() {
+        Vocabulary full = new Vocabulary(1);
+        String code = full.intern(new String("COL"));
+
+        assertThat(full.intern(new String("COL"))).isSameAs(code);
+        assertThat(full.intern("DEP")).isEqualTo("DEP");
+        assertThat(full.size()).isEqualTo(1);
+    }
+
+    private static ShipmentDetailsDto.TrackingEvent event(String code, String date, String location) {
+        return ShipmentDetailsDto.TrackingEvent.builder().code(code).date(date).location(location).build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.sendify.server.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+
+class ShipmentCacheTests {
+
+    private static final ShipmentDetailsDto IN_TRANSIT = shipment("COL", "DEP");
+    private static final ShipmentDetailsDto DELIVERED = shipment("COL", "DEP", "DLV");
+
+    @Test
+    void deliveredShipmentsOutliveShipmentsInTransit() throws InterruptedException {
+        ShipmentCache cache = cache(10, Duration.ofMillis(50), Duration.ofDays(1));
+        cache.put("1806203236", IN_TRANSIT);
+        cache.put("1806290829", DELIVERED);
+
+        assertThat(cache.isDelivered(DELIVERED)).isTrue();
+        assertThat(cache.isDelivered(IN_TRANSIT)).isFalse();
+        assertThat(cache.get("1806203236")).isEqualTo(IN_TRANSIT);
+
+        Thread.sleep(100);
+
+        assertThat(cache.get("1806203236")).isNull();
+        assertThat(cache.getStale("1806203236")).isEqualTo(IN_TRANSIT);
+        assertThat(cache.get("1806290829")).isEqualTo(DELIVERED);
+        ShipmentCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(2);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.expirations()).isEqualTo(1);
+        assertThat(stats.staleHits()).isEqualTo(1);
+    }
+
+    @Test
+    void countsAnExpiredShipmentOnceHoweverOftenItIsRead() throws InterruptedException {
+        ShipmentCache cache = cache(10, Duration.ofMillis(50), Duration.ofDays(1));
+        cache.put("1806203236", IN_TRANSIT);
+
+        Thread.sleep(100);
+
+        assertThat(cache.get("1806203236")).isNull();
+        assertThat(cache.get("1806203236")).isNull();
+        assertThat(cache.getStale("1806203236")).isEqualTo(IN_TRANSIT);
+        assertThat(cache.stats().misses()).isEqualTo(2);
+        assertThat(cache.stats().expirations()).isEqualTo(1);
+
+        cache.put("1806203236", IN_TRANSIT);
+        Thread.sleep(100);
+
+        assertThat(cache.get("1806203236")).isNull();
+        assertThat(cache.stats().expirations()).isEqualTo(2);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedShipment() {
+        ShipmentCache cache = cache(2, Duration.ofMinutes(2), Duration.ofDays(1));
+        cache.put("1806203236", IN_TRANSIT);
+        cache.put("1806290829", IN_TRANSIT);
+        // Reading the first entry makes the second one the least recently used
+        cache.get("1806203236");
+        cache.put("1806273700", DELIVERED);
+
+        assertThat(cache.get("1806290829")).isNull();
+        assertThat(cache.get("1806203236")).isNotNull();
+        assertThat(cache.get("1806273700")).isNotNull();
+        ShipmentCache.Stats stats = cache.stats();
+        assertThat(stats.evictions()).isEqualTo(1);
+        assertThat(stats.size()).isEqualTo(2);
+        assertThat(stats.hits()).isEqualTo(3);
+        assertThat(stats.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidatedShipmentIsNotServedStale() {
+        ShipmentCache cache = cache(10, Duration.ofMinutes(2), Duration.ofDays(1));
+        cache.put("1806203236", IN_TRANSIT);
+        cache.invalidate("1806203236");
+
+        assertThat(cache.get("1806203236")).isNull();
+        assertThat(cache.getStale("1806203236")).isNull();
+    }
+
+    private static ShipmentCache cache(int maxSize, Duration inTransitTtl, Duration deliveredTtl) {
+        ShipmentCache cache = new ShipmentCache();
+        ReflectionTestUtils.setField(cache, "maxSize", maxSize);
+        ReflectionTestUtils.setField(cache, "inTransitTtl", inTransitTtl);
+        ReflectionTestUtils.setField(cache, "deliveredTtl", deliveredTtl);
+        ReflectionTestUtils.setField(cache, "staleTtl", Duration.ofDays(7));
+        ReflectionTestUtils.setField(cache, "deliveredCodes", Set.of("DLV"));
+        ReflectionTestUtils.setField(cache, "vocabularyMaxSize", 100);
+        cache.init();
+        return cache;
+    }
+
+    private static ShipmentDetailsDto shipment(String... codes) {
+        return ShipmentDetailsDto.builder()
+                .trackingHistory(List.of(codes).stream()
+                        .map(code -> ShipmentDetailsDto.TrackingEvent.builder()
+                                .code(code)
+                                .date("2025-11-03T08:15:00+01:00")
+                                .location("Malmö")
+                                .build())
+                        .toList())
+                .fetchedAt("2025-11-06T00:00:00Z")
+                .build();
+    }
+}
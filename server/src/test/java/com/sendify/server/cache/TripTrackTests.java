@@ -0,0 +1,74 @@
+package com.sendify.server.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sendify.server.dto.internal.TripDto;
+
+class TripTrackTests {
+
+    @Test
+    void refreshAppendsBehindTheKnownPrefix() {
+        TripTrack known = track(TripTrack.EMPTY, 3, 0);
+        TripTrack refreshed = track(known, 5, 0);
+
+        assertThat(refreshed.size()).isEqualTo(5);
+        assertThat(refreshed.revision()).isEqualTo(known.revision());
+        assertThat(ReflectionTestUtils.getField(refreshed, "coordinates"))
+                .isSameAs(ReflectionTestUtils.getField(known, "coordinates"));
+
+        TripDto delta = refreshed.toDto("1806203236", 3);
+        assertThat(delta.getFromIndex()).isEqualTo(3);
+        assertThat(delta.getTotalPoints()).isEqualTo(5);
+        assertThat(delta.getPoints()).extracting(TripDto.TripPoint::getLatitude).containsExactly(53.0, 54.0);
+        assertThat(refreshed.toDto("1806203236", 9).getPoints()).isEmpty();
+    }
+
+    @Test
+    void secondRefreshOfTheSameTrackDoesNotOverwriteTheFirst() {
+        TripTrack known = track(TripTrack.EMPTY, 3, 0);
+        TripTrack first = track(known, 4, 0);
+        TripTrack second = track(known, 4, 100);
+
+        assertThat(first.toDto("1806203236", 3).getPoints()).extracting(TripDto.TripPoint::getLongitude).containsExactly(13.0);
+        assertThat(second.toDto("1806203236", 3).getPoints()).extracting(TripDto.TripPoint::getLongitude).containsExactly(113.0);
+    }
+
+    @Test
+    void unchangedRefreshSharesTheTailWithTheKnownTrack() {
+        TripTrack known = track(TripTrack.EMPTY, 3, 0);
+        TripTrack unchanged = track(known, 3, 0);
+        TripTrack fromKnown = track(known, 4, 0);
+        TripTrack fromUnchanged = track(unchanged, 4, 100);
+
+        assertThat(ReflectionTestUtils.getField(unchanged, "coordinates"))
+                .isSameAs(ReflectionTestUtils.getField(known, "coordinates"));
+        assertThat(fromKnown.toDto("1806203236", 3).getPoints()).extracting(TripDto.TripPoint::getLongitude).containsExactly(13.0);
+        assertThat(fromUnchanged.toDto("1806203236", 3).getPoints()).extracting(TripDto.TripPoint::getLongitude).containsExactly(113.0);
+    }
+
+    @Test
+    void changedPrefixStartsANewRevision() {
+        TripTrack known = track(TripTrack.EMPTY, 3, 0);
+        TripTrack.Builder points = known.extend();
+        points.add(50.0, 10.0, "MOV", "2025-11-03T00:00:00+01:00");
+        points.add(51.5, 11.5, "DEP", "2025-11-03T09:00:00+01:00");
+        TripTrack rerouted = points.build(null, null, null);
+
+        assertThat(rerouted.revision()).isEqualTo(known.revision() + 1);
+        assertThat(known.toDto("1806203236", 0).getPoints()).extracting(TripDto.TripPoint::getLatitude).containsExactly(50.0, 51.0, 52.0);
+    }
+
+    /**
+     * Points 0..n-1 at latitude 50+i and longitude 10+i, the points from the size of {@code known} on shifted by {@code offset}.
+     */
+    private static TripTrack track(TripTrack known, int n, double offset) {
+        TripTrack.Builder points = known.extend();
+        for (int i = 0; i < n; i++) {
+            double shift = i >= known.size() ? offset : 0;
+            points.add(50.0 + i, 10.0 + i + shift, "MOV", "2025-11-03T0" + i + ":00:00+01:00");
+        }
+        return points.build("2025-11-03T00:00:00+01:00", null, null);
+    }
+}
@@ -0,0 +1,115 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CaptchaSessionManagerTests {
+
+    private final CaptchaSessionManager session = new CaptchaSessionManager();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(session, "stockMaxSize", 4);
+        ReflectionTestUtils.setField(session, "stockMaxAge", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(session, "challengeRateWindow", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(session, "stockRefillInterval", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(session, "refreshRatio", 0.5);
+        ReflectionTestUtils.setField(session, "refreshIdleTimeout", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(session, "minLifetime", Duration.ofMillis(20));
+    }
+
+    @Test
+    void lifetimeIsLearnedFromRejectedTokens() throws InterruptedException {
+        session.onSolved("first");
+        Thread.sleep(30);
+        session.onRejected("other");
+        assertThat(session.tokenLifetime()).isNull();
+
+        session.onRejected("first");
+        assertThat(session.currentSolution()).isNull();
+        Duration lifetime = session.tokenLifetime();
+        assertThat(lifetime).isGreaterThanOrEqualTo(Duration.ofMillis(30));
+
+        // A token refused right away says nothing about the lifetime
+        session.onSolved("second");
+        session.onRejected("second");
+        assertThat(session.currentSolution()).isNull();
+        assertThat(session.tokenLifetime()).isEqualTo(lifetime);
+    }
+
+    @Test
+    void refreshIsDueNearTheLifetimeOfAnActiveToken() throws InterruptedException {
+        session.onSolved("token");
+        assertThat(session.isRefreshDue()).isFalse();
+
+        ReflectionTestUtils.setField(session, "lifetimeNanos", Duration.ofMillis(100).toNanos());
+        assertThat(session.isRefreshDue()).isFalse();
+
+        // Half of the lifetime has passed, but the token was never used
+        Thread.sleep(60);
+        assertThat(session.isRefreshDue()).isFalse();
+
+        session.onAccepted("token");
+        assertThat(session.isRefreshDue()).isTrue();
+
+        ReflectionTestUtils.setField(session, "refreshIdleTimeout", Duration.ofMillis(10));
+        Thread.sleep(20);
+        assertThat(session.isRefreshDue()).isFalse();
+    }
+
+    @Test
+    void stockFollowsChallengeRateAndSolveTime() {
+        assertThat(session.stockDeficit()).isZero();
+
+        // 2 challenges in 10 s, one expected per 5 s refill round
+        session.onChallenged();
+        session.onChallenged();
+        assertThat(session.targetStockSize()).isEqualTo(1);
+
+        // Slow solves widen the round to 15 s
+        session.recordSolveTime(Duration.ofSeconds(10).toNanos());
+        assertThat(session.targetStockSize()).isEqualTo(3);
+
+        for (int i = 0; i < 20; i++) {
+            session.onChallenged();
+        }
+        assertThat(session.stockDeficit()).isEqualTo(4);
+    }
+
+    @Test
+    void presolvedSolutionBecomesCurrentToken() {
+        session.addPresolved("first");
+        session.addPresolved("second");
+
+        assertThat(session.takePresolved()).isEqualTo("first");
+        assertThat(session.currentSolution()).isEqualTo("first");
+        assertThat(session.takePresolved()).isEqualTo("second");
+        assertThat(session.takePresolved()).isNull();
+    }
+
+    @Test
+    void presolvedTokenKeepsItsSolveTime() throws InterruptedException {
+        ReflectionTestUtils.setField(session, "lifetimeNanos", Duration.ofMillis(100).toNanos());
+        session.addPresolved("stocked");
+        Thread.sleep(60);
+
+        assertThat(session.takePresolved()).isEqualTo("stocked");
+        session.onAccepted("stocked");
+        // Half of the lifetime passed while the token was in stock
+        assertThat(session.isRefreshDue()).isTrue();
+    }
+
+    @Test
+    void expiredPresolvedSolutionsAreDropped() throws InterruptedException {
+        ReflectionTestUtils.setField(session, "stockMaxAge", Duration.ofMillis(20));
+        session.addPresolved("old");
+        Thread.sleep(30);
+
+        assertThat(session.takePresolved()).isNull();
+        assertThat(session.currentSolution()).isNull();
+    }
+}
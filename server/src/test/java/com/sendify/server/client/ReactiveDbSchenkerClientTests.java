@@ -0,0 +1,84 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import com.sendify.server.MockUpstream;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.util.CaptchaPuzzles;
+import com.sendify.server.util.DbSchenkerCaptchaSolver;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReactiveDbSchenkerClientTests {
+
+    @Autowired
+    private ReactiveDbSchenkerClient client;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private CaptchaSessionManager captchaSession;
+
+    @Autowired
+    private DbSchenkerCaptchaSolver captchaSolver;
+
+    @Test
+    void challengedLookupIsSolvedAndRetried() {
+        // Leave no stocked solution behind, so the challenge has to be solved
+        while (captchaSession.takePresolved() != null) {
+            // drain
+        }
+        String puzzle = CaptchaPuzzles.challenge(CaptchaPuzzles.benchmarkPuzzles(2, 33, 64));
+        String solution = captchaSolver.generateCaptcha(puzzle);
+        List<String> sent = new CopyOnWriteArrayList<>();
+        MockUpstream upstream = new MockUpstream(restTemplate, Duration.ZERO, request -> {
+            String header = request.getHeaders().getFirst("captcha-solution");
+            sent.add(String.valueOf(header));
+            if (!solution.equals(header)) {
+                return MockUpstream.challenge(puzzle).createResponse(request);
+            }
+            if (request.getURI().toString().contains("?query=")) {
+                return MockUpstream.searchResult("LandStt:SEMMASOLVED").createResponse(request);
+            }
+            return MockUpstream.landStt().createResponse(request);
+        });
+
+        ShipmentDetailsDto details = client.trackShipment("SOLVED", TrackingContext.unbounded()).block(Duration.ofSeconds(30));
+
+        assertThat(details.getTrackingHistory()).isNotEmpty();
+        // 429, retry with the solution, then /land with the solution as the session token
+        assertThat(upstream.requests()).isEqualTo(3);
+        assertThat(sent.subList(1, 3)).containsOnly(solution);
+        assertThat(captchaSession.currentSolution()).isEqualTo(solution);
+    }
+
+    @Test
+    void concurrentSubscribersShareOneLookup() {
+        MockUpstream upstream = new MockUpstream(restTemplate, Duration.ofMillis(100), request -> {
+            if (request.getURI().toString().contains("?query=")) {
+                return MockUpstream.searchResult("LandStt:SEMMASHARED").createResponse(request);
+            }
+            return MockUpstream.landStt().createResponse(request);
+        });
+
+        List<CompletableFuture<ShipmentDetailsDto>> lookups = IntStream.range(0, 5)
+                .mapToObj(i -> client.trackShipment("SHARED", TrackingContext.unbounded()).toFuture())
+                .toList();
+
+        List<ShipmentDetailsDto> results = lookups.stream().map(CompletableFuture::join).toList();
+        assertThat(results).hasSize(5).allSatisfy(details -> assertThat(details).isSameAs(results.getFirst()));
+        assertThat(upstream.requests()).isEqualTo(2);
+    }
+}
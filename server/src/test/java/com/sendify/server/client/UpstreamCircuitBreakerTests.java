@@ -0,0 +1,91 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sendify.server.exception.UpstreamUnavailableException;
+import com.sendify.server.metrics.TrackingMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UpstreamCircuitBreakerTests {
+
+    private static final long FAST = Duration.ofMillis(100).toNanos();
+    private static final long SLOW = Duration.ofSeconds(30).toNanos();
+
+    private final UpstreamCircuitBreaker breaker = new UpstreamCircuitBreaker(new TrackingMetrics(new SimpleMeterRegistry()));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "windowSize", 10);
+        ReflectionTestUtils.setField(breaker, "minimumCalls", 4);
+        ReflectionTestUtils.setField(breaker, "failureRateThreshold", 0.5);
+        ReflectionTestUtils.setField(breaker, "slowCallDuration", Duration.ofSeconds(20));
+        ReflectionTestUtils.setField(breaker, "slowCallRateThreshold", 0.75);
+        ReflectionTestUtils.setField(breaker, "openDuration", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(breaker, "halfOpenCalls", 2);
+        breaker.init();
+    }
+
+    @Test
+    void opensOnFailureRateAndFailsFast() {
+        record(true, false, true);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+
+        // 2 of 4 lookups failed
+        record(false);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.OPEN);
+        assertThat(breaker.isOpen()).isTrue();
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(UpstreamUnavailableException.class);
+    }
+
+    @Test
+    void opensOnSlowCalls() {
+        for (int i = 0; i < 3; i++) {
+            breaker.acquirePermission();
+            breaker.onSuccess(SLOW);
+        }
+        breaker.acquirePermission();
+        breaker.onSuccess(FAST);
+
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void closesAfterSuccessfulTrialsAndReopensOnTrialFailure() throws InterruptedException {
+        record(true, true, true, true);
+        Thread.sleep(60);
+
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+        // Only two trial lookups are let through while half-open
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(UpstreamUnavailableException.class);
+        breaker.onSuccess(FAST);
+        breaker.onFailure(FAST);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.OPEN);
+
+        Thread.sleep(60);
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+        assertThat(breaker.state()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+    }
+
+    private void record(boolean... failures) {
+        for (boolean failure : failures) {
+            breaker.acquirePermission();
+            if (failure) {
+                breaker.onFailure(FAST);
+            } else {
+                breaker.onSuccess(FAST);
+            }
+        }
+    }
+}
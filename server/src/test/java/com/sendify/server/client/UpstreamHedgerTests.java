@@ -0,0 +1,120 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.sendify.server.exception.DeadlineExceededException;
+import com.sendify.server.metrics.TrackingMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UpstreamHedgerTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UpstreamHedger hedger = new UpstreamHedger(executor, new UpstreamRateLimiter(), new TrackingMetrics(registry));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(hedger, "enabled", true);
+        ReflectionTestUtils.setField(hedger, "quantile", 0.95);
+        ReflectionTestUtils.setField(hedger, "windowSize", 100);
+        ReflectionTestUtils.setField(hedger, "minSamples", 10);
+        hedger.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void hedgeDelayIsTheQuantileOfRecentLatencies() {
+        for (int i = 1; i <= 9; i++) {
+            hedger.recordLatency(i);
+        }
+        assertThat(hedger.hedgeDelayNanos()).isEqualTo(-1);
+
+        hedger.recordLatency(100);
+        assertThat(hedger.hedgeDelayNanos()).isEqualTo(100);
+    }
+
+    @Test
+    void slowRequestIsHedgedAndTheFasterResponseWins() {
+        for (int i = 0; i < 10; i++) {
+            hedger.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = hedger.executeHedged("land", () -> calls.getAndIncrement() == 0 ? sleep(5_000, "primary") : "hedge",
+                TrackingContext.unbounded().withDeadline(Duration.ofSeconds(2)));
+
+        assertThat(result).isEqualTo("hedge");
+        assertThat(calls).hasValue(2);
+        assertThat(registry.counter("dbschenker.upstream.hedged", "query", "land", "winner", "hedge").count()).isEqualTo(1);
+    }
+
+    @Test
+    void exchangeRunsOnTheCallingThreadWithTheDeadlineAsTimeout() {
+        Thread caller = Thread.currentThread();
+
+        Duration timeout = hedger.execute(() -> {
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            return ExchangeDeadline.cap(Duration.ofSeconds(20));
+        }, TrackingContext.unbounded().withDeadline(Duration.ofSeconds(1)));
+
+        assertThat(timeout).isLessThanOrEqualTo(Duration.ofSeconds(1));
+        assertThat(ExchangeDeadline.cap(Duration.ofSeconds(20))).isEqualTo(Duration.ofSeconds(20));
+    }
+
+    @Test
+    void failureAfterTheDeadlineIsReportedAsDeadlineExceeded() {
+        assertThatThrownBy(() -> hedger.execute(() -> {
+            sleep(100, null);
+            throw new ResourceAccessException("request timed out");
+        }, TrackingContext.unbounded().withDeadline(Duration.ofMillis(20)))).isInstanceOf(DeadlineExceededException.class);
+
+        assertThatThrownBy(() -> hedger.execute(() -> {
+            throw new ResourceAccessException("connection refused");
+        }, TrackingContext.unbounded().withDeadline(Duration.ofSeconds(1)))).isInstanceOf(ResourceAccessException.class);
+    }
+
+    @Test
+    void pendingHedgedRequestsAreCancelledAtTheDeadline() throws InterruptedException {
+        for (int i = 0; i < 10; i++) {
+            hedger.recordLatency(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        CountDownLatch interrupted = new CountDownLatch(2);
+
+        assertThatThrownBy(() -> hedger.executeHedged("land", () -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        }, TrackingContext.unbounded().withDeadline(Duration.ofMillis(100)))).isInstanceOf(DeadlineExceededException.class);
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static String sleep(long millis, String result) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+package com.sendify.server.client;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sendify.server.exception.UpstreamOverloadedException;
+
+class UpstreamRateLimiterTests {
+
+    private final UpstreamRateLimiter limiter = new UpstreamRateLimiter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(limiter, "enabled", true);
+        ReflectionTestUtils.setField(limiter, "initialRate", 10.0);
+        ReflectionTestUtils.setField(limiter, "minRate", 1.0);
+        ReflectionTestUtils.setField(limiter, "maxRate", 20.0);
+        ReflectionTestUtils.setField(limiter, "burst", 2);
+        ReflectionTestUtils.setField(limiter, "additiveIncrease", 1.0);
+        ReflectionTestUtils.setField(limiter, "decreaseFactor", 0.5);
+        ReflectionTestUtils.setField(limiter, "decreaseCooldown", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(limiter, "maxQueueWait", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(limiter, "backoffBase", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(limiter, "backoffMax", Duration.ofMillis(5));
+        limiter.init();
+    }
+
+    @Test
+    void throttlingHalvesRateOncePerCooldown() {
+        limiter.onThrottled();
+        limiter.onThrottled();
+
+        assertThat(limiter.currentRate()).isEqualTo(5.0);
+    }
+
+    @Test
+    void successIncreasesRateUpToMaximum() {
+        limiter.onSuccess();
+        assertThat(limiter.currentRate()).isEqualTo(10.1);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.onSuccess();
+        }
+        assertThat(limiter.currentRate()).isEqualTo(20.0);
+    }
+
+    @Test
+    void shedsRequestsThatWouldQueueTooLong() {
+        // The burst of 2 is served immediately, the next slot is 100 ms away at 10 req/s
+        limiter.acquire();
+        limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire).isInstanceOf(UpstreamOverloadedException.class);
+    }
+
+    @Test
+    void tryAcquireGivesUpWithoutReservingWhenTheWaitIsTooLong() {
+        ReflectionTestUtils.setField(limiter, "maxQueueWait", Duration.ofSeconds(1));
+
+        assertThat(limiter.tryAcquire(0)).isTrue();
+        assertThat(limiter.tryAcquire(0)).isTrue();
+
+        // The next slot is 100 ms away at 10 req/s
+        assertThat(limiter.tryAcquire(Duration.ofMillis(10).toNanos())).isFalse();
+        assertThat(limiter.tryAcquire(0)).isFalse();
+        assertThat(limiter.tryAcquire(Duration.ofMillis(200).toNanos())).isTrue();
+    }
+
+    @Test
+    void reserveReturnsQueueDelayInsteadOfSleeping() {
+        ReflectionTestUtils.setField(limiter, "maxQueueWait", Duration.ofSeconds(1));
+
+        assertThat(limiter.reserve()).isZero();
+        assertThat(limiter.reserve()).isZero();
+        // The third caller queues behind the burst for roughly one slot at 10 req/s
+        assertThat(limiter.reserve()).isBetween(Duration.ofMillis(50), Duration.ofMillis(100));
+    }
+
+    @Test
+    void disabledLimiterNeverSheds() {
+        ReflectionTestUtils.setField(limiter, "enabled", false);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire();
+        }
+        limiter.onThrottled();
+        assertThat(limiter.currentRate()).isEqualTo(10.0);
+    }
+}
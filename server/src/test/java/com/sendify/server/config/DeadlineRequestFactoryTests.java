@@ -0,0 +1,84 @@
+package com.sendify.server.config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import com.sendify.server.client.TrackingContext;
+import com.sendify.server.client.UpstreamHedger;
+import com.sendify.server.client.UpstreamRateLimiter;
+import com.sendify.server.exception.DeadlineExceededException;
+import com.sendify.server.metrics.TrackingMetrics;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DeadlineRequestFactoryTests {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final UpstreamHedger hedger = new UpstreamHedger(executor, new UpstreamRateLimiter(), new TrackingMetrics(new SimpleMeterRegistry()));
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "late".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        restTemplate = new RestTemplate(new DeadlineRequestFactory(HttpClient.newHttpClient(), Duration.ofSeconds(20)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void requestTimesOutAtTheDeadlineOfItsLookup() {
+        String url = "http://localhost:" + server.getAddress().getPort() + "/slow";
+        Thread caller = Thread.currentThread();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> hedger.execute(() -> {
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            return restTemplate.getForObject(url, String.class);
+        }, TrackingContext.unbounded().withDeadline(Duration.ofMillis(200)))).isInstanceOf(DeadlineExceededException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void requestWithoutDeadlineWaitsForTheResponse() {
+        String url = "http://localhost:" + server.getAddress().getPort() + "/slow";
+        release.countDown();
+
+        assertThat(hedger.execute(() -> restTemplate.getForObject(url, String.class), TrackingContext.unbounded()))
+                .isEqualTo("late");
+    }
+}
@@ -0,0 +1,63 @@
+package com.sendify.server.config;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class GzipResponseInterceptorTests {
+
+    private static final String BODY = "{\"sttNumber\":\"1806203236\"}";
+
+    private final GzipResponseInterceptor interceptor = new GzipResponseInterceptor();
+
+    @Test
+    void decompressesGzipResponses() throws Exception {
+        byte[] compressed = gzip(BODY);
+        MockClientHttpRequest request = request();
+        ClientHttpResponse response = interceptor.intercept(request, new byte[0], (req, body) -> {
+            MockClientHttpResponse upstream = new MockClientHttpResponse(compressed, HttpStatus.OK);
+            upstream.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            upstream.getHeaders().setContentLength(compressed.length);
+            return upstream;
+        });
+
+        assertThat(request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING)).isEqualTo("gzip");
+        assertThat(new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(BODY);
+        assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_LENGTH)).isFalse();
+    }
+
+    @Test
+    void passesPlainAndEmptyResponsesThrough() throws Exception {
+        MockClientHttpResponse plain = new MockClientHttpResponse(BODY.getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+        assertThat(interceptor.intercept(request(), new byte[0], (req, body) -> plain)).isSameAs(plain);
+
+        // A bare 429 announces gzip without sending a gzip stream
+        MockClientHttpResponse challenge = new MockClientHttpResponse(new byte[0], HttpStatus.TOO_MANY_REQUESTS);
+        challenge.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        challenge.getHeaders().setContentLength(0);
+        assertThat(interceptor.intercept(request(), new byte[0], (req, body) -> challenge)).isSameAs(challenge);
+    }
+
+    private static MockClientHttpRequest request() {
+        return new MockClientHttpRequest(HttpMethod.GET, URI.create("https://www.dbschenker.com/nges-portal/api/public/tracking-public/shipments"));
+    }
+
+    private static byte[] gzip(String text) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,57 @@
+package com.sendify.server.config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import com.sendify.server.exception.UpstreamOverloadedException;
+
+class RouteConcurrencyInterceptorTests {
+
+    private static final ClientHttpRequestExecution OK = (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+
+    private final RouteConcurrencyInterceptor interceptor = new RouteConcurrencyInterceptor(1, Duration.ofMillis(50));
+
+    @Test
+    void waitsAtMostTheMaxWaitForAFreeConnection() throws Exception {
+        ClientHttpResponse first = interceptor.intercept(request("https://www.dbschenker.com/a"), new byte[0], OK);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> interceptor.intercept(request("https://www.dbschenker.com/b"), new byte[0], OK))
+                .isInstanceOf(UpstreamOverloadedException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(50));
+
+        // Other routes have their own permits
+        interceptor.intercept(request("https://api.dbschenker.com/a"), new byte[0], OK).close();
+
+        first.close();
+        first.close();
+        interceptor.intercept(request("https://www.dbschenker.com/b"), new byte[0], OK).close();
+        interceptor.intercept(request("https://www.dbschenker.com/c"), new byte[0], OK).close();
+    }
+
+    @Test
+    void releasesThePermitWhenTheExchangeFails() throws Exception {
+        ClientHttpRequestExecution failing = (request, body) -> {
+            throw new IOException("connection reset");
+        };
+        assertThatThrownBy(() -> interceptor.intercept(request("https://www.dbschenker.com/a"), new byte[0], failing))
+                .isInstanceOf(IOException.class);
+
+        interceptor.intercept(request("https://www.dbschenker.com/a"), new byte[0], OK).close();
+    }
+
+    private static MockClientHttpRequest request(String uri) {
+        return new MockClientHttpRequest(HttpMethod.GET, URI.create(uri));
+    }
+}
@@ -0,0 +1,101 @@
+package com.sendify.server.controller;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.client.RestTemplate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.MockUpstream;
+import com.sendify.server.dto.internal.BatchItemResult;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ShipmentControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void batchIsStreamedAsNewlineDelimitedJson() throws Exception {
+        new MockUpstream(restTemplate, Duration.ZERO, request -> {
+            String uri = request.getURI().toString();
+            if (uri.contains("?query=NDJSON1")) {
+                return MockUpstream.searchResult("LandStt:SEMMANDJSON1").createResponse(request);
+            }
+            if (uri.contains("?query=")) {
+                return MockUpstream.searchResult().createResponse(request);
+            }
+            return MockUpstream.landStt().createResponse(request);
+        });
+
+        MvcResult result = mockMvc.perform(post("/api/v1/shipments:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"referenceNumbers\": [\"NDJSON1\", \"NDJSON2\"]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(Duration.ofSeconds(10).toMillis());
+
+        assertThat(result.getResponse().getContentType()).startsWith(MediaType.APPLICATION_NDJSON_VALUE);
+        List<String> lines = result.getResponse().getContentAsString().lines().toList();
+        assertThat(lines).hasSize(2);
+        List<BatchItemResult> items = lines.stream().map(this::readItem).toList();
+        assertThat(items).extracting(BatchItemResult::getReferenceNumber, BatchItemResult::getStatus)
+                .containsExactlyInAnyOrder(
+                        tuple("NDJSON1", BatchItemResult.Status.OK),
+                        tuple("NDJSON2", BatchItemResult.Status.ERROR));
+    }
+
+    @Test
+    void invalidBatchesAreRejectedWithBadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/shipments:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"referenceNumbers\": [\"1\", \"2\", \"3\", \"4\", \"5\"]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Batch exceeds the maximum of 4 references"));
+        mockMvc.perform(post("/api/v1/shipments:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"referenceNumbers\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void nonPositiveTimeoutIsRejectedWithBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/shipments/1806203236").header(ShipmentController.TIMEOUT_HEADER, "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Timeout must be positive, got 0 ms"));
+        mockMvc.perform(get("/api/v1/shipments/1806203236").header(ShipmentController.TIMEOUT_HEADER, "-5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private BatchItemResult readItem(String line) {
+        try {
+            return objectMapper.readValue(line, BatchItemResult.class);
+        } catch (Exception e) {
+            throw new AssertionError("Not a batch item: " + line, e);
+        }
+    }
+}
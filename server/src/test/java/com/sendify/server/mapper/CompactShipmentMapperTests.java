@@ -0,0 +1,65 @@
+package com.sendify.server.mapper;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.dto.external.LandSttResponse;
+import com.sendify.server.dto.internal.CompactShipmentDto;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.util.EventTimestamps;
+
+class CompactShipmentMapperTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CompactShipmentMapper mapper = new CompactShipmentMapper();
+
+    private ShipmentDetailsDto details;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (InputStream in = getClass().getResourceAsStream("/payloads/land-small.json")) {
+            details = new LandSttResponseMapper().map(objectMapper.readValue(in, LandSttResponse.class));
+        }
+    }
+
+    @Test
+    void keepsLatestEventsAndDropsPackagesThatRepeatTheHistory() throws Exception {
+        CompactShipmentDto compact = mapper.map(details, 2, null);
+
+        assertThat(compact.getEvents()).extracting(CompactShipmentDto.Event::getCode).containsExactly("OFD", "DLV");
+        assertThat(compact.getOmittedEvents()).isEqualTo(4);
+        assertThat(compact.getPackages()).isEmpty();
+
+        String json = objectMapper.writeValueAsString(compact);
+        assertThat(json).doesNotContain("null", "packages", "stale");
+        assertThat(json.length()).isLessThan(objectMapper.writeValueAsString(details).length() / 3);
+    }
+
+    @Test
+    void groupsPackagesByTheirOwnEventsSince() {
+        ShipmentDetailsDto.TrackingEvent damaged = ShipmentDetailsDto.TrackingEvent.builder()
+                .code("DMG").date("2025-11-03T19:00:00+01:00").location("Hamburg").comment("Damaged").build();
+        List<ShipmentDetailsDto.PackageTracking> packages = new ArrayList<>();
+        for (ShipmentDetailsDto.PackageTracking pkg : details.getPackageTracking()) {
+            List<ShipmentDetailsDto.TrackingEvent> events = new ArrayList<>(pkg.getEvents());
+            events.add(4, damaged);
+            packages.add(ShipmentDetailsDto.PackageTracking.builder().packageId(pkg.getPackageId()).events(events).build());
+        }
+        Instant since = EventTimestamps.parseBound("2025-11-03T18:00:00+01:00");
+
+        CompactShipmentDto compact = mapper.map(details.toBuilder().packageTracking(packages).build(), null, since);
+
+        assertThat(compact.getEvents()).extracting(CompactShipmentDto.Event::getCode).containsExactly("ARR", "OFD", "DLV");
+        assertThat(compact.getPackages()).singleElement().satisfies(group -> {
+            assertThat(group.getPackageIds()).containsExactly("00340434697000120000", "00340434697000120001");
+            assertThat(group.getEvents()).extracting(CompactShipmentDto.Event::getCode).containsExactly("DMG");
+        });
+    }
+}
@@ -0,0 +1,64 @@
+package com.sendify.server.mapper;
+
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.dto.external.LandSttResponse;
+import com.sendify.server.dto.external.ShipmentResponse;
+
+class LandSttStreamingDecoderTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LandSttResponseMapper mapper = new LandSttResponseMapper();
+    private final LandSttStreamingDecoder decoder = new LandSttStreamingDecoder();
+
+    @Test
+    void streamingDecodeMapsLikeDatabind() throws Exception {
+        byte[] body;
+        try (InputStream in = getClass().getResourceAsStream("/payloads/land-small.json")) {
+            body = in.readAllBytes();
+        }
+
+        LandSttResponse expected = objectMapper.readValue(body, LandSttResponse.class);
+        LandSttResponse streamed = decoder.readLandStt(objectMapper.createParser(body));
+
+        assertThat(mapper.map(streamed)).isEqualTo(mapper.map(expected));
+        assertThat(streamed.getProgressBar()).isNull();
+    }
+
+    @Test
+    void readsFirstResultIdAndSkipsTheRest() throws Exception {
+        String body = """
+                {"meta": {"count": [2]},
+                 "result": [{"type": "LAND", "id": "LandStt:SEMMA1806203236"}, {"id": "LandStt:other"}],
+                 "trailer": null}
+                """;
+
+        assertThat(decoder.readFirstResultId(objectMapper.createParser(body))).isEqualTo("LandStt:SEMMA1806203236");
+        assertThat(decoder.readFirstResultId(objectMapper.createParser("{\"result\": []}"))).isNull();
+    }
+
+    @Test
+    void readsEverySearchResultWithItsSummary() throws Exception {
+        String body = """
+                {"result": [
+                   {"id": "LandStt:SEMMA1806203236", "stt": "SEMMA1806203236", "transportMode": "LAND", "percentageProgress": 80,
+                    "lastEventCode": "ARR", "fromLocation": "Malmö, SE", "toLocation": "Hamburg, DE", "consignment": "1806203236"},
+                   {"id": "AirStt:ARN1806203236", "stt": "ARN1806203236", "transportMode": "AIR", "percentageProgress": null}],
+                 "warnings": ["partial"]}
+                """;
+
+        ShipmentResponse response = decoder.readSearch(objectMapper.createParser(body));
+
+        assertThat(response.getResults()).extracting(ShipmentResponse.ShipmentResult::getStt)
+                .containsExactly("SEMMA1806203236", "ARN1806203236");
+        ShipmentResponse.ShipmentResult land = response.getResults().getFirst();
+        assertThat(land.getPercentageProgress()).isEqualTo(80);
+        assertThat(land.getLastEventCode()).isEqualTo("ARR");
+        assertThat(land.getToLocation()).isEqualTo("Hamburg, DE");
+        assertThat(response.getResults().get(1).getPercentageProgress()).isNull();
+    }
+}
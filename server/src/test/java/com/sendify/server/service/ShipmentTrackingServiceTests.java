@@ -0,0 +1,284 @@
+package com.sendify.server.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+
+import com.sendify.server.MockUpstream;
+import com.sendify.server.client.CaptchaSessionManager;
+import com.sendify.server.client.UpstreamCircuitBreaker;
+import com.sendify.server.dto.internal.BatchItemResult;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.dto.internal.ShipmentSearchResult;
+import com.sendify.server.exception.DeadlineExceededException;
+import com.sendify.server.exception.InvalidBatchRequestException;
+import com.sendify.server.exception.InvalidTimeoutException;
+import com.sendify.server.exception.ShipmentNotFoundException;
+import com.sendify.server.exception.TrackingReferenceMissingException;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ShipmentTrackingServiceTests {
+
+    @Autowired
+    private ShipmentTrackingService service;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private CaptchaSessionManager captchaSession;
+
+    @Autowired
+    private UpstreamCircuitBreaker circuitBreaker;
+
+    @Test
+    void batchReportsEveryReferenceWithinItsConcurrencyLanes() {
+        MockUpstream upstream = new MockUpstream(restTemplate, Duration.ofMillis(50), request -> {
+            String uri = request.getURI().toString();
+            if (uri.contains("?query=LANE")) {
+                return MockUpstream.searchResult("LandStt:" + uri.substring(uri.indexOf('=') + 1)).createResponse(request);
+            }
+            return MockUpstream.landStt().createResponse(request);
+        });
+
+        List<BatchItemResult> results = trackBatch(List.of("LANE1", "LANE2", "LANE3", "LANE4"));
+
+        assertThat(results).extracting(BatchItemResult::getReferenceNumber)
+                .containsExactlyInAnyOrder("LANE1", "LANE2", "LANE3", "LANE4");
+        assertThat(results).allSatisfy(item -> {
+            assertThat(item.getStatus()).isEqualTo(BatchItemResult.Status.OK);
+            assertThat(item.getShipment().getTrackingHistory()).isNotEmpty();
+        });
+        // A search and a /land request per reference, at most max-concurrency (2) at a time
+        assertThat(upstream.requests()).isEqualTo(8);
+        assertThat(upstream.maxInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void shortDeadlineOfTheFirstCallerDoesNotFailTheOthers() throws Exception {
+        MockUpstream upstream = new MockUpstream(restTemplate, Duration.ofMillis(150), request ->
+                request.getURI().toString().contains("?query=")
+                        ? MockUpstream.searchResult("LandStt:SEMMACOALESCE").createResponse(request)
+                        : MockUpstream.landStt().createResponse(request));
+
+        CompletableFuture<ShipmentDetailsDto> first = CompletableFuture.supplyAsync(
+                () -> service.trackShipment("COALESCE", Duration.ofMillis(50)));
+        Thread.sleep(20);
+        ShipmentDetailsDto second = service.trackShipment("COALESCE", Duration.ofSeconds(5));
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(DeadlineExceededException.class);
+        assertThat(second.getTrackingHistory()).isNotEmpty();
+        // The second caller joined the lookup the first one started
+        assertThat(upstream.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void asyncLookupRunsWithinTheGivenBudget() {
+        new MockUpstream(restTemplate, Duration.ofMillis(300), request ->
+                request.getURI().toString().contains("?query=")
+                        ? MockUpstream.searchResult("LandStt:SEMMAASYNC").createResponse(request)
+                        : MockUpstream.landStt().createResponse(request));
+
+        assertThatThrownBy(() -> service.trackShipmentAsync("ASYNC", Duration.ofMillis(50)).block())
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThatThrownBy(() -> service.trackShipmentAsync("ASYNC", Duration.ZERO).block())
+                .isInstanceOf(InvalidTimeoutException.class);
+        // The shared lookup goes on after the caller gave up; join it so it does not reach the next test's upstream
+        assertThat(service.trackShipment("ASYNC", Duration.ofSeconds(5)).getTrackingHistory()).isNotEmpty();
+    }
+
+    @Test
+    void cancelledBatchStopsTakingNewReferences() {
+        MockUpstream upstream = new MockUpstream(restTemplate, Duration.ofMillis(50), request -> {
+            String uri = request.getURI().toString();
+            if (uri.contains("?query=STOP")) {
+                return MockUpstream.searchResult("LandStt:" + uri.substring(uri.indexOf('=') + 1)).createResponse(request);
+            }
+            return MockUpstream.landStt().createResponse(request);
+        });
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<BatchItemResult> results = new CopyOnWriteArrayList<>();
+
+        service.trackBatch(List.of("STOP1", "STOP2", "STOP3", "STOP4"), item -> {
+            results.add(item);
+            cancelled.set(true);
+        }, cancelled::get).join();
+
+        // Both lanes finish the reference they are on, then stop
+        assertThat(results).hasSizeLessThanOrEqualTo(2);
+        assertThat(upstream.requests()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void failedReferenceDoesNotFailTheBatch() {
+        new MockUpstream(restTemplate, Duration.ZERO, request -> {
+            String uri = request.getURI().toString();
+            if (uri.contains("?query=FOUND")) {
+                return MockUpstream.searchResult("LandStt:SEMMAFOUND").createResponse(request);
+            }
+            if (uri.contains("?query=")) {
+                return MockUpstream.searchResult().createResponse(request);
+            }
+            return MockUpstream.landStt().createResponse(request);
+        });
+
+        List<BatchItemResult> results = trackBatch(List.of("FOUND", "UNKNOWN"));
+
+        assertThat(results).extracting(BatchItemResult::getReferenceNumber, BatchItemResult::getStatus)
+                .containsExactlyInAnyOrder(
+                        tuple("FOUND", BatchItemResult.Status.OK),
+                        tuple("UNKNOWN", BatchItemResult.Status.ERROR));
+        assertThat(results).filteredOn(item -> item.getStatus() == BatchItemResult.Status.ERROR)
+                .singleElement()
+                .satisfies(item -> assertThat(item.getError()).contains("No shipment found"));
+    }
+
+    @Test
+    void batchSharesOneCaptchaBudget() {
+        for (int i = 0; i < 10; i++) {
+            captchaSession.addPresolved("presolved-" + i);
+        }
+        MockUpstream upstream = new MockUpstream(restTemplate, Duration.ZERO, MockUpstream.challenge("puzzle"));
+
+        List<BatchItemResult> results = trackBatch(List.of("BUDGET1", "BUDGET2", "BUDGET3"));
+
+        assertThat(results).hasSize(3).allSatisfy(item -> {
+            assertThat(item.getStatus()).isEqualTo(BatchItemResult.Status.ERROR);
+            assertThat(item.getError()).contains("Captcha budget exhausted");
+        });
+        // The batch retries twice with a stocked solution (captcha-budget=2), then every reference gives up
+        assertThat(upstream.requests()).isEqualTo(5);
+    }
+
+    @Test
+    void exhaustedCaptchaBudgetDoesNotOpenTheCircuitBreaker() {
+        ReflectionTestUtils.setField(circuitBreaker, "enabled", true);
+        ReflectionTestUtils.setField(circuitBreaker, "minimumCalls", 2);
+        try {
+            for (int i = 0; i < 10; i++) {
+                captchaSession.addPresolved("presolved-" + i);
+            }
+            new MockUpstream(restTemplate, Duration.ZERO, MockUpstream.challenge("puzzle"));
+
+            assertThat(trackBatch(List.of("BREAKER1", "BREAKER2", "BREAKER3")))
+                    .allSatisfy(item -> assertThat(item.getError()).contains("Captcha budget exhausted"));
+            assertThat(circuitBreaker.state()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+        } finally {
+            ReflectionTestUtils.setField(circuitBreaker, "enabled", false);
+            ReflectionTestUtils.setField(circuitBreaker, "minimumCalls", 10);
+        }
+    }
+
+    @Test
+    void challengedRequestIsRetriedWithACaptchaSolution() {
+        captchaSession.addPresolved("retry-solution");
+        AtomicBoolean challenged = new AtomicBoolean();
+        List<String> solutions = new CopyOnWriteArrayList<>();
+        MockUpstream upstream = new MockUpstream(restTemplate, Duration.ZERO, request -> {
+            solutions.add(String.valueOf(request.getHeaders().getFirst("captcha-solution")));
+            if (challenged.compareAndSet(false, true)) {
+                return MockUpstream.challenge("puzzle").createResponse(request);
+            }
+            if (request.getURI().toString().contains("?query=")) {
+                return MockUpstream.searchResult("LandStt:SEMMARETRY").createResponse(request);
+            }
+            return MockUpstream.landStt().createResponse(request);
+        });
+
+        assertThat(service.trackShipment("RETRY").getTrackingHistory()).isNotEmpty();
+        assertThat(upstream.requests()).isEqualTo(3);
+        assertThat(solutions.subList(1, 3)).doesNotContain("null");
+    }
+
+    @Test
+    void missingTripIsReportedAsNotFound() {
+        new MockUpstream(restTemplate, Duration.ZERO, request -> {
+            String uri = request.getURI().toString();
+            if (uri.endsWith("/trip")) {
+                return withStatus(HttpStatus.NOT_FOUND).createResponse(request);
+            }
+            return MockUpstream.searchResult("LandStt:SEMMANOTRIP").createResponse(request);
+        });
+
+        assertThatThrownBy(() -> service.trackTrip("NOTRIP", 0))
+                .isInstanceOf(ShipmentNotFoundException.class)
+                .hasMessageContaining("/land/LandStt:SEMMANOTRIP/trip");
+    }
+
+    @Test
+    void searchFetchesDetailsOnlyForSelectedMatches() {
+        MockUpstream upstream = searchUpstream("SELECTED");
+
+        ShipmentSearchResult result = service.searchShipments("SELECTED", List.of(" SELECTED2 ", "UNLISTED"));
+
+        assertThat(result.getReferenceNumber()).isEqualTo("SELECTED");
+        assertThat(result.getMatches()).extracting(ShipmentSearchResult.Match::getStt)
+                .containsExactly("SELECTED1", "SELECTED2", "SELECTED3");
+        assertThat(result.getMatches()).extracting(match -> match.getShipment() != null)
+                .containsExactly(false, true, false);
+        // One search and one /land request
+        assertThat(upstream.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void searchForAllMatchesReportsFailedDetailsPerMatch() {
+        MockUpstream upstream = searchUpstream("EVERY");
+
+        ShipmentSearchResult result = service.searchShipments("EVERY", List.of(ShipmentTrackingService.ALL_MATCHES));
+
+        assertThat(result.getMatches()).extracting(match -> match.getShipment() != null)
+                .containsExactly(true, true, false);
+        assertThat(result.getMatches().get(2).getError()).contains("500");
+        assertThat(result.getMatches().subList(0, 2)).extracting(ShipmentSearchResult.Match::getError).containsOnlyNulls();
+        assertThat(upstream.requests()).isEqualTo(4);
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() {
+        assertThatThrownBy(() -> service.trackBatch(List.of(), item -> { }))
+                .isInstanceOf(TrackingReferenceMissingException.class);
+        assertThatThrownBy(() -> service.trackBatch(List.of("1", "2", "3", "4", "5"), item -> { }))
+                .isInstanceOf(InvalidBatchRequestException.class)
+                .hasMessageContaining("maximum of 4");
+    }
+
+    /**
+     * Three matches for the reference; the details of the third one fail with a 500.
+     */
+    private MockUpstream searchUpstream(String reference) {
+        return new MockUpstream(restTemplate, Duration.ZERO, request -> {
+            String uri = request.getURI().toString();
+            if (uri.contains("?query=")) {
+                return MockUpstream.searchResult("LandStt:" + reference + "1", "LandStt:" + reference + "2", "LandStt:" + reference + "3")
+                        .createResponse(request);
+            }
+            if (uri.endsWith(reference + "3")) {
+                return withStatus(HttpStatus.INTERNAL_SERVER_ERROR).createResponse(request);
+            }
+            return MockUpstream.landStt().createResponse(request);
+        });
+    }
+
+    private List<BatchItemResult> trackBatch(List<String> referenceNumbers) {
+        ConcurrentLinkedQueue<BatchItemResult> results = new ConcurrentLinkedQueue<>();
+        service.trackBatch(referenceNumbers, results::add).join();
+        return List.copyOf(results);
+    }
+}
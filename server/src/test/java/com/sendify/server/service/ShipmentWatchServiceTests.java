@@ -0,0 +1,152 @@
+package com.sendify.server.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.cache.ShipmentCache;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.dto.internal.ShipmentEventDelta;
+import com.sendify.server.exception.UpstreamOverloadedException;
+import com.sendify.server.store.ShipmentHistoryStore;
+
+class ShipmentWatchServiceTests {
+
+    private static final ShipmentDetailsDto.TrackingEvent COLLECTED = event("COL", "2025-11-03T08:15:00+01:00", "Malmö");
+    private static final ShipmentDetailsDto.TrackingEvent DEPARTED = event("DEP", "2025-11-03T18:40:00+01:00", "Malmö");
+    private static final ShipmentDetailsDto.TrackingEvent ARRIVED = event("ARR", "2025-11-05T06:10:00+01:00", "Frankfurt");
+
+    private final ExecutorService upstreamExecutor = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService watchScheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        upstreamExecutor.shutdownNow();
+        watchScheduler.shutdownNow();
+    }
+
+    @Test
+    void concurrentSubscribersCannotExceedTheWatchLimit() throws Exception {
+        ShipmentWatchService service = service(5);
+        ExecutorService subscribers = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> subscriptions = IntStream.range(0, 16)
+                    .mapToObj(i -> subscribers.submit(() -> {
+                        start.await();
+                        try {
+                            service.subscribe("18062032" + i);
+                            return "18062032" + i;
+                        } catch (UpstreamOverloadedException e) {
+                            return null;
+                        }
+                    }))
+                    .toList();
+            start.countDown();
+
+            List<String> accepted = new ArrayList<>();
+            for (Future<String> subscription : subscriptions) {
+                String reference = subscription.get(5, TimeUnit.SECONDS);
+                if (reference != null) {
+                    accepted.add(reference);
+                }
+            }
+            assertThat(accepted).hasSize(5);
+            assertThat(service.watchedShipments()).isEqualTo(5);
+            // A watched reference still takes more subscribers
+            service.subscribe(accepted.getFirst());
+        } finally {
+            subscribers.shutdownNow();
+            service.close();
+        }
+    }
+
+    @Test
+    void watchOfADeliveredShipmentIsAnsweredFromTheCache() throws InterruptedException {
+        ShipmentWatchService service = service(5);
+        ShipmentCache cache = (ShipmentCache) ReflectionTestUtils.getField(service, "shipmentCache");
+        cache.put("1806290829", shipment(List.of(COLLECTED, event("DLV", "2025-11-06T10:00:00+01:00", "Berlin")), List.of()));
+
+        service.subscribe("1806290829");
+
+        // Without an upstream client the watch only ends if its first poll never asked the upstream
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.watchedShipments() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(service.watchedShipments()).isZero();
+    }
+
+    @Test
+    void diffContainsOnlyNewEvents() {
+        ShipmentDetailsDto previous = shipment(List.of(COLLECTED), List.of(pkg("P1", COLLECTED), pkg("P2", COLLECTED)));
+        ShipmentDetailsDto current = shipment(List.of(COLLECTED, DEPARTED),
+                List.of(pkg("P1", COLLECTED, DEPARTED), pkg("P2", COLLECTED), pkg("P3", ARRIVED)));
+
+        ShipmentEventDelta delta = ShipmentWatchService.diff("1806203236", previous, current);
+
+        assertThat(delta.hasEvents()).isTrue();
+        assertThat(delta.getTrackingHistory()).containsExactly(DEPARTED);
+        assertThat(delta.getPackageTracking()).extracting(ShipmentDetailsDto.PackageTracking::getPackageId)
+                .containsExactly("P1", "P3");
+        assertThat(delta.getPackageTracking().get(0).getEvents()).containsExactly(DEPARTED);
+    }
+
+    @Test
+    void unchangedShipmentHasNoEvents() {
+        ShipmentDetailsDto previous = shipment(List.of(COLLECTED), List.of(pkg("P1", COLLECTED)));
+        // Same events, rebuilt by a later poll
+        ShipmentDetailsDto current = shipment(List.of(event("COL", "2025-11-03T08:15:00+01:00", "Malmö")),
+                List.of(pkg("P1", event("COL", "2025-11-03T08:15:00+01:00", "Malmö"))));
+
+        assertThat(ShipmentWatchService.diff("1806203236", previous, current).hasEvents()).isFalse();
+    }
+
+    /**
+     * Watch service without an upstream client: polls that need the upstream fail and are retried later.
+     */
+    private ShipmentWatchService service(int maxShipments) {
+        ShipmentCache cache = new ShipmentCache();
+        ReflectionTestUtils.setField(cache, "maxSize", 10);
+        ReflectionTestUtils.setField(cache, "inTransitTtl", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(cache, "deliveredTtl", Duration.ofDays(1));
+        ReflectionTestUtils.setField(cache, "staleTtl", Duration.ofDays(7));
+        ReflectionTestUtils.setField(cache, "deliveredCodes", Set.of("DLV"));
+        ReflectionTestUtils.setField(cache, "vocabularyMaxSize", 100);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+        ShipmentWatchService service = new ShipmentWatchService(
+                null, cache, new ShipmentHistoryStore(new ObjectMapper()), upstreamExecutor, watchScheduler);
+        ReflectionTestUtils.setField(service, "minInterval", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "maxInterval", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(service, "subscriptionTimeout", Duration.ofHours(1));
+        ReflectionTestUtils.setField(service, "maxShipments", maxShipments);
+        return service;
+    }
+
+    private static ShipmentDetailsDto shipment(List<ShipmentDetailsDto.TrackingEvent> history,
+                                               List<ShipmentDetailsDto.PackageTracking> packages) {
+        return ShipmentDetailsDto.builder().trackingHistory(history).packageTracking(packages).build();
+    }
+
+    private static ShipmentDetailsDto.PackageTracking pkg(String id, ShipmentDetailsDto.TrackingEvent... events) {
+        return ShipmentDetailsDto.PackageTracking.builder().packageId(id).events(List.of(events)).build();
+    }
+
+    private static ShipmentDetailsDto.TrackingEvent event(String code, String date, String location) {
+        return ShipmentDetailsDto.TrackingEvent.builder().code(code).date(date).location(location).build();
+    }
+}
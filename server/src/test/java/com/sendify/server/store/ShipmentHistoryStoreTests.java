@@ -0,0 +1,143 @@
+package com.sendify.server.store;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.dto.internal.ShipmentDetailsDto;
+import com.sendify.server.dto.internal.ShipmentHistoryRecord;
+
+class ShipmentHistoryStoreTests {
+
+    private static final ShipmentDetailsDto.TrackingEvent COLLECTED = event("COL", "2025-11-03T08:15:00+01:00", "Malmö");
+    private static final ShipmentDetailsDto.TrackingEvent DEPARTED = event("DEP", "2025-11-03T18:40:00+01:00", "Malmö");
+    private static final ShipmentDetailsDto.TrackingEvent ARRIVED = event("ARR", "2025-11-05T06:10:00+01:00", "Hamburg");
+
+    @TempDir
+    Path storeDirectory;
+
+    @Test
+    void keepsEveryEventOnceAndReplaysItAfterRestart() throws Exception {
+        ShipmentHistoryStore store = open();
+        store.record("1806203236", shipment(List.of(COLLECTED, DEPARTED), "2025-11-04T00:00:00Z"));
+        // The upstream dropped COL; the store keeps it and appends only ARR
+        store.record("1806203236", shipment(List.of(DEPARTED, ARRIVED), "2025-11-06T00:00:00Z"));
+
+        ShipmentDetailsDto recorded = store.find("1806203236");
+        assertThat(recorded.getTrackingHistory()).containsExactly(COLLECTED, DEPARTED, ARRIVED);
+        assertThat(recorded.getPackageTracking()).singleElement().satisfies(pkg ->
+                assertThat(pkg.getEvents()).containsExactly(COLLECTED, DEPARTED, ARRIVED));
+        assertThat(recorded.getFetchedAt()).isEqualTo("2025-11-06T00:00:00Z");
+
+        // Closing waits for the writer thread
+        ReflectionTestUtils.invokeMethod(store, "close");
+        Path file = storeDirectory.resolve(ShipmentHistoryStore.FILE_NAME);
+        assertThat(Files.readAllLines(file)).hasSize(1 + 3 + 3);
+        Files.writeString(file, "{\"referenceNumber\":\"1806203236\",\"ev", StandardOpenOption.APPEND);
+        ShipmentHistoryStore restarted = open();
+
+        assertThat(restarted.find("1806203236")).isEqualTo(recorded);
+        restarted.record("1806203237", shipment(List.of(COLLECTED), "2025-11-04T00:00:00Z"));
+        ReflectionTestUtils.invokeMethod(restarted, "close");
+        assertThat(open().find("1806203237")).isNotNull();
+    }
+
+    @Test
+    void findsEventsOfAllShipmentsByDate() {
+        ShipmentHistoryStore store = open();
+        store.record("1806203236", shipment(List.of(COLLECTED, DEPARTED, ARRIVED), "2025-11-06T00:00:00Z"));
+        store.record("1806203237", shipment(List.of(event("DLV", "2025-11-04T10:00:00+01:00", "Oslo")), "2025-11-06T00:00:00Z"));
+        // A package event the shipment history does not list is indexed on its own
+        store.record("1806203238", ShipmentDetailsDto.builder()
+                .trackingHistory(List.of())
+                .packageTracking(List.of(ShipmentDetailsDto.PackageTracking.builder()
+                        .packageId("00340434697000120001")
+                        .events(List.of(event("ENM", "2025-11-04T12:00:00+01:00", "Oslo")))
+                        .build()))
+                .build());
+
+        List<ShipmentHistoryRecord> events = store.findEvents(Instant.parse("2025-11-03T12:00:00Z"), Instant.parse("2025-11-05T00:00:00Z"));
+
+        // Package copies of shipment events are not listed again
+        assertThat(events).extracting(record -> record.getEvent().getCode())
+                .containsExactly("DEP", "DLV", "ENM");
+        assertThat(events).extracting(ShipmentHistoryRecord::getPackageId)
+                .containsExactly(null, null, "00340434697000120001");
+    }
+
+    @Test
+    void dropsTheLeastRecentlyRecordedShipmentsAndCompactsTheLog() throws Exception {
+        ShipmentHistoryStore store = open(2, Duration.ofDays(180));
+        store.record("1806203236", shipment(List.of(COLLECTED), recentlyFetched()));
+        store.record("1806203237", shipment(List.of(COLLECTED), recentlyFetched()));
+        store.record("1806203236", shipment(List.of(COLLECTED, DEPARTED), recentlyFetched()));
+        store.record("1806203238", shipment(List.of(ARRIVED), recentlyFetched()));
+
+        assertThat(store.find("1806203237")).isNull();
+        assertThat(store.find("1806203236")).isNotNull();
+        assertThat(store.findEvents(null, null)).extracting(ShipmentHistoryRecord::getReferenceNumber)
+                .containsExactly("1806203236", "1806203236", "1806203238");
+
+        // 3 + 3 + 2 + 3 lines written and 5 + 3 still live: too few dropped to rewrite the log
+        store.compact();
+        ReflectionTestUtils.invokeMethod(store, "close");
+        Path file = storeDirectory.resolve(ShipmentHistoryStore.FILE_NAME);
+        assertThat(Files.readAllLines(file)).hasSize(11);
+
+        // A retention shorter than the age of every recording drops them all on startup and empties the log
+        ShipmentHistoryStore expired = open(2, Duration.ofMillis(1));
+        Thread.sleep(5);
+        expired.compact();
+        assertThat(expired.find("1806203236")).isNull();
+        assertThat(expired.findEvents(null, null)).isEmpty();
+        ReflectionTestUtils.invokeMethod(expired, "close");
+        assertThat(Files.readAllLines(file)).isEmpty();
+    }
+
+    private ShipmentHistoryStore open() {
+        return open(100, Duration.ofDays(365_000));
+    }
+
+    private ShipmentHistoryStore open(int maxShipments, Duration retention) {
+        ShipmentHistoryStore store = new ShipmentHistoryStore(new ObjectMapper());
+        ReflectionTestUtils.setField(store, "storeDirectory", storeDirectory);
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "maxQueryResults", 1000);
+        ReflectionTestUtils.setField(store, "maxShipments", maxShipments);
+        ReflectionTestUtils.setField(store, "retention", retention);
+        ReflectionTestUtils.invokeMethod(store, "load");
+        return store;
+    }
+
+    /**
+     * A shipment whose only package has the same events as the shipment itself.
+     */
+    private static ShipmentDetailsDto shipment(List<ShipmentDetailsDto.TrackingEvent> events, String fetchedAt) {
+        return ShipmentDetailsDto.builder()
+                .sender(ShipmentDetailsDto.Party.builder().name("Sendify AB").build())
+                .trackingHistory(events)
+                .packageTracking(List.of(ShipmentDetailsDto.PackageTracking.builder()
+                        .packageId("00340434697000120000")
+                        .events(events)
+                        .build()))
+                .fetchedAt(fetchedAt)
+                .build();
+    }
+
+    private static String recentlyFetched() {
+        return Instant.now().toString();
+    }
+
+    private static ShipmentDetailsDto.TrackingEvent event(String code, String date, String location) {
+        return ShipmentDetailsDto.TrackingEvent.builder().code(code).date(date).location(location).build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.sendify.server.store;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class SttIdIndexStoreTests {
+
+    @TempDir
+    Path storeDirectory;
+
+    @Test
+    void appendsMappingsAndReplaysThemAfterRestart() throws Exception {
+        SttIdIndexStore store = open();
+        store.put("1806203236", "LandStt:1001");
+        store.put("1806290829", "LandStt:1002");
+        // Unchanged mappings are not written again
+        store.put("1806203236", "LandStt:1001");
+        ReflectionTestUtils.invokeMethod(store, "close");
+
+        assertThat(Files.readAllLines(file())).containsExactly("1806203236\tLandStt:1001", "1806290829\tLandStt:1002");
+        SttIdIndexStore restarted = open();
+        assertThat(restarted.find("1806203236")).isEqualTo("LandStt:1001");
+        assertThat(restarted.find("1806290829")).isEqualTo("LandStt:1002");
+        assertThat(restarted.find("1806273700")).isNull();
+    }
+
+    @Test
+    void skipsATornTailAndKeepsNewMappingsOffIt() throws Exception {
+        Files.writeString(file(), "1806203236\tLandStt:1001\n1806290829\t");
+        SttIdIndexStore store = open();
+
+        assertThat(store.find("1806203236")).isEqualTo("LandStt:1001");
+        assertThat(store.find("1806290829")).isNull();
+
+        store.put("1806273700", "LandStt:1003");
+        ReflectionTestUtils.invokeMethod(store, "close");
+        assertThat(open().find("1806273700")).isEqualTo("LandStt:1003");
+    }
+
+    @Test
+    void skipsUndecodableLinesAndCompactsRemappedReferences() throws Exception {
+        byte[] malformed = {'1', '8', '0', '6', (byte) 0xC3, '\t', 'L', '\n'};
+        Files.write(file(), concat(
+                "1806203236\tLandStt:1000\n".getBytes(StandardCharsets.UTF_8),
+                malformed,
+                "1806290829\tLandStt:1002\n1806203236\tLandStt:1001\n".getBytes(StandardCharsets.UTF_8)));
+
+        SttIdIndexStore store = open();
+
+        assertThat(store.find("1806203236")).isEqualTo("LandStt:1001");
+        assertThat(store.find("1806290829")).isEqualTo("LandStt:1002");
+        assertThat(Files.readAllLines(file())).containsExactlyInAnyOrder("1806203236\tLandStt:1001", "1806290829\tLandStt:1002");
+    }
+
+    private SttIdIndexStore open() {
+        SttIdIndexStore store = new SttIdIndexStore();
+        ReflectionTestUtils.setField(store, "storeDirectory", storeDirectory);
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.invokeMethod(store, "load");
+        return store;
+    }
+
+    private Path file() {
+        return storeDirectory.resolve(SttIdIndexStore.FILE_NAME);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, bytes, offset, part.length);
+            offset += part.length;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,96 @@
+package com.sendify.server.util;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.metrics.TrackingMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CaptchaHashEngineTests {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void matchesAgreesWithMessageDigestReference() throws Exception {
+        for (int i = 0; i < 2_000; i++) {
+            byte[] puzzle = randomPuzzle();
+            int nonce = random.nextInt(Integer.MAX_VALUE);
+            BigInteger hash = referenceHash(puzzle, nonce);
+
+            for (BigInteger target : new BigInteger[]{
+                    hash, hash.add(BigInteger.ONE), new BigInteger(256, random), BigInteger.ZERO
+            }) {
+                assertThat(new CaptchaHashEngine(puzzle, target).matches(nonce))
+                        .isEqualTo(hash.compareTo(target) < 0);
+            }
+        }
+    }
+
+    @Test
+    void engineCanBeReusedAcrossNonces() throws Exception {
+        byte[] puzzle = randomPuzzle();
+        BigInteger target = new BigInteger(256, random);
+        CaptchaHashEngine engine = new CaptchaHashEngine(puzzle, target);
+
+        for (int nonce = 0; nonce < 1_000; nonce++) {
+            assertThat(engine.matches(nonce)).isEqualTo(referenceHash(puzzle, nonce).compareTo(target) < 0);
+        }
+    }
+
+    @Test
+    void parallelSolverReturnsSameNonceAsSequentialSearch() throws Exception {
+        DbSchenkerCaptchaSolver solver = new DbSchenkerCaptchaSolver(
+                new ObjectMapper(), new ForkJoinPool(4), new TrackingMetrics(new SimpleMeterRegistry()));
+
+        for (int i = 0; i < 5; i++) {
+            byte[] puzzle = randomPuzzle();
+            // target = 0x20 * 2^240, roughly one hit every 2^11 nonces
+            puzzle[13] = 33;
+            puzzle[14] = 0x20;
+            BigInteger target = BigInteger.valueOf(0x20).shiftLeft(240);
+
+            int expected = 0;
+            while (referenceHash(puzzle, expected).compareTo(target) >= 0) {
+                expected++;
+            }
+
+            byte[] solution = Base64.getDecoder().decode(solver.solvePuzzle(puzzle));
+            assertThat(solution).hasSize(8);
+            assertThat(new BigInteger(1, reverse(solution)).intValueExact()).isEqualTo(expected);
+        }
+    }
+
+    private byte[] randomPuzzle() {
+        byte[] puzzle = new byte[32];
+        random.nextBytes(puzzle);
+        return puzzle;
+    }
+
+    /** reverse(sha256(sha256(puzzle + nonce))) as computed by the original BigInteger solver. */
+    private static BigInteger referenceHash(byte[] puzzle, int nonce) throws Exception {
+        byte[] combined = new byte[40];
+        System.arraycopy(puzzle, 0, combined, 0, 32);
+        for (int i = 0; i < 4; i++) {
+            combined[32 + i] = (byte) (nonce >>> (8 * i));
+        }
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        byte[] hash = sha256.digest(sha256.digest(combined));
+        return new BigInteger(1, reverse(hash));
+    }
+
+    private static byte[] reverse(byte[] bytes) {
+        byte[] reversed = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            reversed[i] = bytes[bytes.length - 1 - i];
+        }
+        return reversed;
+    }
+}
@@ -0,0 +1,42 @@
+package com.sendify.server.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Captcha puzzles and challenges as in the benchmarks module (Puzzles), for tests that need real proof-of-work.
+ */
+public final class CaptchaPuzzles {
+
+    private CaptchaPuzzles() {
+    }
+
+    /** Same puzzle set as Puzzles.randomPuzzles in the benchmarks module (seed 42). */
+    public static byte[][] benchmarkPuzzles(int count, int t13, int t14) {
+        Random random = new Random(42L);
+        byte[][] puzzles = new byte[count][32];
+        for (byte[] puzzle : puzzles) {
+            random.nextBytes(puzzle);
+            puzzle[13] = (byte) t13;
+            puzzle[14] = (byte) t14;
+        }
+        return puzzles;
+    }
+
+    /** Same encoding as Puzzles.challenge in the benchmarks module: the value of a captcha-puzzle header. */
+    public static String challenge(byte[]... puzzles) {
+        String header = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        StringBuilder jwts = new StringBuilder();
+        for (byte[] puzzle : puzzles) {
+            if (!jwts.isEmpty()) {
+                jwts.append(',');
+            }
+            String payload = "{\"puzzle\":\"" + Base64.getEncoder().encodeToString(puzzle) + "\"}";
+            jwts.append(header).append('.')
+                    .append(Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8)))
+                    .append(".signature");
+        }
+        return Base64.getEncoder().encodeToString(jwts.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,108 @@
+package com.sendify.server.util;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static com.sendify.server.util.CaptchaPuzzles.benchmarkPuzzles;
+import static com.sendify.server.util.CaptchaPuzzles.challenge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sendify.server.metrics.TrackingMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DbSchenkerCaptchaSolverTests {
+
+    /**
+     * The puzzles of the captcha benchmarks (seed 42): ~1k and ~16k expected attempts, so the harder ones
+     * span several nonce blocks. Every worker count must find the nonce the sequential search finds first.
+     */
+    @ParameterizedTest
+    @CsvSource({"33, 64, 1", "33, 64, 4", "33, 4, 3", "33, 4, 8"})
+    void parallelSearchReturnsTheSmallestValidNonce(int t13, int t14, int workers) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            DbSchenkerCaptchaSolver solver = new DbSchenkerCaptchaSolver(
+                    new ObjectMapper(), pool, new TrackingMetrics(new SimpleMeterRegistry()));
+            for (byte[] puzzle : benchmarkPuzzles(16, t13, t14)) {
+                assertThat(solver.solvePuzzle(puzzle)).isEqualTo(encode(sequentialSearch(puzzle)));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"33, 4, 4"})
+    void challengeSolutionsMatchTheSequentialSearch(int t13, int t14, int workers) throws Exception {
+        byte[][] puzzles = benchmarkPuzzles(3, t13, t14);
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            DbSchenkerCaptchaSolver solver = new DbSchenkerCaptchaSolver(
+                    new ObjectMapper(), pool, new TrackingMetrics(new SimpleMeterRegistry()));
+            String solution = new String(Base64.getDecoder().decode(solver.generateCaptcha(challenge(puzzles))), StandardCharsets.UTF_8);
+
+            for (byte[] puzzle : puzzles) {
+                assertThat(solution).contains("\"solution\":\"" + encode(sequentialSearch(puzzle)) + "\"");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void cancelledSearchStopsWithoutASolution() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            DbSchenkerCaptchaSolver solver = new DbSchenkerCaptchaSolver(
+                    new ObjectMapper(), pool, new TrackingMetrics(new SimpleMeterRegistry()));
+            // ~2^40 expected attempts, so only the cancellation can end the search
+            String challenge = challenge(benchmarkPuzzles(1, 30, 1));
+
+            assertThatThrownBy(() -> solver.generateCaptcha(challenge, () -> true))
+                    .isInstanceOf(CancellationException.class);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** The original single-threaded search: the first nonce with reverse(sha256(sha256(puzzle + nonce))) < target. */
+    private static int sequentialSearch(byte[] puzzle) throws Exception {
+        BigInteger target = BigInteger.valueOf(Byte.toUnsignedInt(puzzle[14])).shiftLeft(8 * (Byte.toUnsignedInt(puzzle[13]) - 3));
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        byte[] combined = new byte[40];
+        System.arraycopy(puzzle, 0, combined, 0, 32);
+        for (int nonce = 0; ; nonce++) {
+            for (int i = 0; i < 4; i++) {
+                combined[32 + i] = (byte) (nonce >>> (8 * i));
+            }
+            byte[] hash = sha256.digest(sha256.digest(combined));
+            byte[] reversed = new byte[hash.length];
+            for (int i = 0; i < hash.length; i++) {
+                reversed[i] = hash[hash.length - 1 - i];
+            }
+            if (new BigInteger(1, reversed).compareTo(target) < 0) {
+                return nonce;
+            }
+        }
+    }
+
+    /** The 8-byte little-endian nonce, base64 encoded. */
+    private static String encode(int nonce) {
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            bytes[i] = (byte) (nonce >>> (8 * i));
+        }
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
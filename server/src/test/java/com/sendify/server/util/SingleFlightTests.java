@@ -0,0 +1,126 @@
+package com.sendify.server.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTests {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("1806203236", () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "shipment";
+            })));
+        }
+        waitUntilInFlight();
+        // Give the remaining callers time to attach to the pending call
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("shipment");
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void failureIsSharedAndNotRetained() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("upstream down");
+
+        Future<String> first = executor.submit(() -> singleFlight.execute("1806203236", () -> {
+            await(release);
+            throw failure;
+        }));
+        waitUntilInFlight();
+        Future<String> second = executor.submit(() -> singleFlight.execute("1806203236", () -> "unexpected"));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        assertThat(singleFlight.execute("1806203236", () -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    void followerStopsWaitingAtItsOwnLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> singleFlight.execute("1806203236", () -> {
+            await(release);
+            return "shipment";
+        }));
+        waitUntilInFlight();
+
+        assertThatThrownBy(() -> singleFlight.execute("1806203236", () -> "unexpected",
+                TimeUnit.MILLISECONDS.toNanos(20), () -> new IllegalStateException("timed out")))
+                .hasMessage("timed out");
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("shipment");
+    }
+
+    @Test
+    void callOnTheExecutorOutlivesTheCallerThatStartedIt() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> singleFlight.execute("1806203236", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "shipment";
+        }, executor, TimeUnit.MILLISECONDS.toNanos(20), () -> new IllegalStateException("timed out")))
+                .hasMessage("timed out");
+        assertThat(singleFlight.inFlightCount()).isEqualTo(1);
+
+        Future<String> follower = executor.submit(() -> singleFlight.execute("1806203236", () -> "unexpected",
+                executor, TimeUnit.SECONDS.toNanos(5), () -> new IllegalStateException("timed out")));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("shipment");
+        assertThat(calls).hasValue(1);
+    }
+
+    private void waitUntilInFlight() throws InterruptedException {
+        while (singleFlight.inFlightCount() == 0) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}